@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class BackgroundExecutorTest {
+
+	private final BackgroundExecutor executor = new BackgroundExecutor();
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testServicePoolsAreReported() throws Exception {
+		ExecutorService pool = executor.newPool("test", 1, 1);
+		assertEquals(List.of("io", "test"), names());
+		pool.submit(() -> null).get(5, TimeUnit.SECONDS);
+		assertEquals(1, executor.getStatistics().get(1).submitted());
+		pool.shutdown();
+		assertEquals(List.of("io"), names());
+	}
+
+	@Test
+	public void testFullPoolRejects() throws Exception {
+		ExecutorService pool = executor.newPool("test", 1, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch running = new CountDownLatch(1);
+		pool.execute(() -> {
+			running.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		running.await(5, TimeUnit.SECONDS);
+		pool.execute(() -> {
+		});
+		assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> {
+		}));
+		assertEquals(1, executor.getStatistics().get(1).rejected());
+		release.countDown();
+	}
+
+	private List<String> names() {
+		return executor.getStatistics().stream().map(BackgroundExecutor.Statistics::name).toList();
+	}
+}
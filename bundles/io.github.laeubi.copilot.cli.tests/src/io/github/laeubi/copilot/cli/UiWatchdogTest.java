@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class UiWatchdogTest {
+
+	private UiWatchdog watchdog;
+
+	@AfterEach
+	public void tearDown() {
+		if (watchdog != null) {
+			watchdog.dispose();
+		}
+	}
+
+	@Test
+	public void testDisabledWatchdogDoesNotWatch() throws Exception {
+		watchdog = new UiWatchdog(false, 10, 0);
+		assertFalse(watchdog.isEnabled());
+		UiWatchdog.Scope first = watchdog.begin("first");
+		UiWatchdog.Scope second = watchdog.begin("second");
+		assertSame(first, second);
+		Thread.sleep(100);
+		first.close();
+		assertEquals(List.of(), watchdog.getStatistics());
+	}
+
+	@Test
+	public void testBudgetEnablesTheWatchdog() {
+		watchdog = new UiWatchdog(false, 100, 50);
+		assertTrue(watchdog.isEnabled());
+	}
+
+	@Test
+	public void testBlockingScopeIsRecorded() throws Exception {
+		watchdog = new UiWatchdog(true, 50, 0);
+		try (UiWatchdog.Scope scope = watchdog.begin("blocking")) {
+			Thread.sleep(300);
+		}
+		UiWatchdog.EntryStatistics statistics = watchdog.getStatistics().get(0);
+		assertEquals("blocking", statistics.getEntryPoint());
+		assertEquals(1, statistics.getCalls());
+		assertEquals(1, statistics.getStalls());
+		assertTrue(statistics.getMaxStallMillis() >= 250, statistics.toString());
+		assertTrue(watchdog.hasStalls());
+		assertEquals(List.of(), watchdog.getViolations());
+	}
+
+	@Test
+	public void testShortScopeIsNoStall() {
+		watchdog = new UiWatchdog(true, 200, 0);
+		try (UiWatchdog.Scope scope = watchdog.begin("short")) {
+			// nothing to do
+		}
+		assertEquals(1, watchdog.getStatistics().get(0).getCalls());
+		assertFalse(watchdog.hasStalls());
+	}
+
+	@Test
+	public void testScopeAboveBudgetIsAViolation() throws Exception {
+		watchdog = new UiWatchdog(false, 100, 50);
+		try (UiWatchdog.Scope scope = watchdog.begin("over budget")) {
+			Thread.sleep(200);
+		}
+		List<String> violations = watchdog.getViolations();
+		assertEquals(1, violations.size());
+		assertTrue(violations.get(0).startsWith("over budget blocked the display thread"), violations.get(0));
+	}
+}
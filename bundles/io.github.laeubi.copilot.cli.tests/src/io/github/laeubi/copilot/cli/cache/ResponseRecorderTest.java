@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+public class ResponseRecorderTest {
+
+	@Test
+	public void testPlainText() {
+		assertEquals("first\nsecond", record("first\r\nsecond\r\n"));
+	}
+
+	@Test
+	public void testColorsAreDropped() {
+		assertEquals("● done", record("\u001b[38;5;245m●\u001b[0m \u001b[1mdone\u001b[22m\r\n"));
+	}
+
+	@Test
+	public void testCarriageReturnOverwrites() {
+		assertEquals("100%", record("  0%\r 50%\r100%\r\n"));
+	}
+
+	@Test
+	public void testRedrawnLinesKeepTheLastFrame() {
+		// a spinner frame replaced by the final answer the way the CLI redraws
+		String frame = "⠋ Thinking\r\n│ tokens 10\r\n";
+		String redraw = "\u001b[2K\u001b[1A\u001b[2K\u001b[1A\u001b[2K\u001b[G";
+		assertEquals("Answer\nline two", record(frame + redraw + "Answer\r\nline two\r\n"));
+	}
+
+	@Test
+	public void testEraseBelow() {
+		assertEquals("keep", record("keep\r\ndrop\r\nthis\u001b[1A\u001b[G\u001b[J"));
+	}
+
+	@Test
+	public void testSequenceSplitAcrossChunks() {
+		ResponseRecorder recorder = new ResponseRecorder();
+		recorder.outputReceived("red \u001b[3");
+		recorder.outputReceived("1mtext\u001b]0;title");
+		recorder.outputReceived("\u0007\r\n");
+		assertEquals("red text", recorder.getResponse());
+	}
+
+	@Test
+	public void testPrivateModesAreIgnored() {
+		assertEquals("visible", record("\u001b[?25lvisible\u001b[?25h"));
+	}
+
+	@Test
+	public void testEmptyOutput() {
+		assertNull(record("\u001b[2J\u001b[H\r\n"));
+	}
+
+	@Test
+	public void testOverflowRecordsNothing() {
+		ResponseRecorder recorder = new ResponseRecorder();
+		String chunk = "x".repeat(64 * 1024);
+		for (int i = 0; i < 17; i++) {
+			recorder.outputReceived(chunk);
+		}
+		assertNull(recorder.getResponse());
+	}
+
+	private static String record(String output) {
+		ResponseRecorder recorder = new ResponseRecorder();
+		recorder.outputReceived(output);
+		return recorder.getResponse();
+	}
+}
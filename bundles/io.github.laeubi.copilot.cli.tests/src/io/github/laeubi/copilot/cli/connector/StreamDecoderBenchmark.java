@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Microbenchmark comparing the UTF-8 {@link StreamDecoder} with a JDK
+ * {@link CharsetDecoder} on output typical for the CLI, that is ANSI escapes,
+ * box drawing characters and some text, read in 1 KiB chunks like the process
+ * streams deliver it. Run it as a plain Java application with the bundle on the
+ * classpath, it is not executed as part of the build.
+ */
+public class StreamDecoderBenchmark {
+
+	private static final int CHUNK = 1024;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) {
+		byte[] data = sample(4 * 1024 * 1024);
+		for (int i = 0; i < 5; i++) {
+			// warm up both paths
+			runStreamDecoder(data);
+			runJdkDecoder(data);
+		}
+		long streamDecoder = 0;
+		long jdkDecoder = 0;
+		long check = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			check += runStreamDecoder(data);
+			streamDecoder += System.nanoTime() - start;
+			start = System.nanoTime();
+			check -= runJdkDecoder(data);
+			jdkDecoder += System.nanoTime() - start;
+		}
+		if (check != 0) {
+			throw new IllegalStateException("decoders produced a different number of chars");
+		}
+		System.out.printf("StreamDecoder: %.1f MB/s%n", throughput(data.length, streamDecoder));
+		System.out.printf("CharsetDecoder: %.1f MB/s%n", throughput(data.length, jdkDecoder));
+	}
+
+	private static long runStreamDecoder(byte[] data) {
+		StreamDecoder decoder = StreamDecoder.forCharset(StandardCharsets.UTF_8);
+		long chars = 0;
+		for (int offset = 0; offset < data.length; offset += CHUNK) {
+			chars += decoder.decode(data, offset, Math.min(CHUNK, data.length - offset)).length();
+		}
+		return chars;
+	}
+
+	private static long runJdkDecoder(byte[] data) {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer in = ByteBuffer.allocate(CHUNK + 4);
+		CharBuffer out = CharBuffer.allocate(2 * CHUNK + 8);
+		long chars = 0;
+		for (int offset = 0; offset < data.length; offset += CHUNK) {
+			in.put(data, offset, Math.min(CHUNK, data.length - offset)).flip();
+			decoder.decode(in, out, false);
+			in.compact();
+			chars += out.flip().remaining();
+			out.clear();
+		}
+		return chars;
+	}
+
+	private static byte[] sample(int size) {
+		String line = "\u001b[2K\u001b[1G\u001b[38;5;245m│\u001b[0m ● Reading src/main/java/Example.java ─ 42 lines ✓\r\n";
+		byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = bytes[i % bytes.length];
+		}
+		return data;
+	}
+
+	private static double throughput(int bytes, long nanos) {
+		return (double) bytes * ROUNDS / (1024 * 1024) / (nanos / 1e9);
+	}
+}
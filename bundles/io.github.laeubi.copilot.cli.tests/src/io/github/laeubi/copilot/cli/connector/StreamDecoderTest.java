@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link StreamDecoder}, the output of a decoder must not depend on
+ * how the input is split into chunks and malformed input is replaced as
+ * defined by the WHATWG encoding standard.
+ */
+public class StreamDecoderTest {
+
+	private static final String TEXT = "plain ascii, umlauts äöü, box ─│┌┐, emoji 😀🚀 and cjk 漢字";
+
+	@Test
+	public void testAscii() {
+		assertEquals("hello world", decode(StandardCharsets.UTF_8, "hello world".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testSplitAtEveryPosition() {
+		byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+		for (int split = 0; split <= bytes.length; split++) {
+			StreamDecoder decoder = StreamDecoder.forCharset(StandardCharsets.UTF_8);
+			StringBuilder text = new StringBuilder();
+			text.append(decoder.decode(bytes, 0, split));
+			text.append(decoder.decode(bytes, split, bytes.length - split));
+			assertEquals(TEXT, text.toString(), "split at " + split);
+		}
+	}
+
+	@Test
+	public void testByteByByte() {
+		byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+		StreamDecoder decoder = StreamDecoder.forCharset(StandardCharsets.UTF_8);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < bytes.length; i++) {
+			text.append(decoder.decode(bytes, i, 1));
+		}
+		assertEquals(TEXT, text.toString());
+	}
+
+	@Test
+	public void testSupplementaryCharacterYieldsSurrogatePair() {
+		byte[] bytes = "😀".getBytes(StandardCharsets.UTF_8);
+		StreamDecoder decoder = StreamDecoder.forCharset(StandardCharsets.UTF_8);
+		assertEquals("", decoder.decode(bytes, 0, 3).toString());
+		String text = decoder.decode(bytes, 3, 1).toString();
+		assertEquals(2, text.length());
+		assertEquals(0x1F600, text.codePointAt(0));
+	}
+
+	@Test
+	public void testInvalidLeadBytes() {
+		assertDecoded("\uFFFDa\uFFFD\uFFFDb", bytes(0xFF, 'a', 0xFE, 0x80, 'b'));
+		assertDecoded("\uFFFD\uFFFD\uFFFD\uFFFDc", bytes(0xC0, 0xC1, 0xF5, 0xF8, 'c'));
+	}
+
+	@Test
+	public void testOverlongSequences() {
+		// '/' encoded in two, three and four bytes
+		assertDecoded("\uFFFD\uFFFDa", bytes(0xC0, 0xAF, 'a'));
+		assertDecoded("\uFFFD\uFFFD\uFFFDa", bytes(0xE0, 0x80, 0xAF, 'a'));
+		assertDecoded("\uFFFD\uFFFD\uFFFD\uFFFDa", bytes(0xF0, 0x80, 0x80, 0xAF, 'a'));
+	}
+
+	@Test
+	public void testEncodedSurrogates() {
+		// every byte is replaced on its own as the JDK does for overlong forms,
+		// while the JDK replaces a whole encoded surrogate by a single character
+		assertDecoded("\uFFFD\uFFFD\uFFFDa", bytes(0xED, 0xA0, 0x80, 'a'));
+		assertDecoded("\uFFFD\uFFFD\uFFFDa", bytes(0xED, 0xBF, 0xBF, 'a'));
+		assertDecoded("\uD7FFa", bytes(0xED, 0x9F, 0xBF, 'a'));
+	}
+
+	@Test
+	public void testBeyondUnicodeRange() {
+		assertDecoded("\uFFFD\uFFFD\uFFFD\uFFFDa", bytes(0xF4, 0x90, 0x80, 0x80, 'a'));
+		assertDecoded("\uDBFF\uDFFFa", bytes(0xF4, 0x8F, 0xBF, 0xBF, 'a'));
+	}
+
+	@Test
+	public void testTruncatedSequences() {
+		assertDecoded("\uFFFDa", bytes(0xE2, 0x82, 'a'));
+		assertDecoded("\uFFFDa", bytes(0xF0, 0x9F, 0x98, 'a'));
+		assertDecoded("\uFFFD€", bytes(0xE2, 0xE2, 0x82, 0xAC));
+	}
+
+	@Test
+	public void testIncompleteSequenceIsKeptPending() {
+		StreamDecoder decoder = StreamDecoder.forCharset(StandardCharsets.UTF_8);
+		assertEquals("a", decoder.decode(bytes('a', 0xE2, 0x82), 0, 3).toString());
+		assertEquals("€b", decoder.decode(bytes(0xAC, 'b'), 0, 2).toString());
+	}
+
+	@Test
+	public void testAsciiReplacesHighBytes() {
+		byte[] bytes = bytes('a', 0xC3, 0xA4, 'b');
+		assertEquals("a\uFFFD\uFFFDb", decode(StandardCharsets.US_ASCII, bytes));
+		assertEquals(new String(bytes, StandardCharsets.US_ASCII), decode(StandardCharsets.US_ASCII, bytes));
+	}
+
+	@Test
+	public void testGenericCharsetKeepsIncompleteSequence() {
+		Charset charset = StandardCharsets.UTF_16LE;
+		byte[] bytes = TEXT.getBytes(charset);
+		for (int split = 0; split <= bytes.length; split++) {
+			StreamDecoder decoder = StreamDecoder.forCharset(charset);
+			StringBuilder text = new StringBuilder();
+			text.append(decoder.decode(bytes, 0, split));
+			text.append(decoder.decode(bytes, split, bytes.length - split));
+			assertEquals(TEXT, text.toString(), "split at " + split);
+		}
+	}
+
+	@Test
+	public void testRandomTextMatchesJdk() {
+		Random random = new Random(42);
+		for (int run = 0; run < 1000; run++) {
+			StringBuilder expected = new StringBuilder();
+			for (int i = random.nextInt(32); i >= 0; i--) {
+				int codePoint = random.nextInt(Character.MAX_CODE_POINT + 1);
+				if (Character.getType(codePoint) != Character.SURROGATE) {
+					expected.appendCodePoint(codePoint);
+				}
+			}
+			byte[] bytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+			assertEquals(expected.toString(), decodeChunked(bytes, random), "run " + run);
+		}
+	}
+
+	@Test
+	public void testRandomBytesIndependentOfChunks() {
+		Random random = new Random(42);
+		for (int run = 0; run < 2000; run++) {
+			byte[] bytes = new byte[random.nextInt(64) + 1];
+			random.nextBytes(bytes);
+			// end with ASCII so no incomplete sequence is left pending
+			bytes[bytes.length - 1] = 'z';
+			assertEquals(decode(StandardCharsets.UTF_8, bytes), decodeChunked(bytes, random), "run " + run);
+		}
+	}
+
+	private static void assertDecoded(String expected, byte[] bytes) {
+		assertEquals(expected, decode(StandardCharsets.UTF_8, bytes));
+		StreamDecoder decoder = StreamDecoder.forCharset(StandardCharsets.UTF_8);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < bytes.length; i++) {
+			text.append(decoder.decode(bytes, i, 1));
+		}
+		assertEquals(expected, text.toString(), "byte by byte");
+	}
+
+	private static String decodeChunked(byte[] bytes, Random random) {
+		StreamDecoder decoder = StreamDecoder.forCharset(StandardCharsets.UTF_8);
+		StringBuilder text = new StringBuilder();
+		int offset = 0;
+		while (offset < bytes.length) {
+			int length = Math.min(bytes.length - offset, random.nextInt(5) + 1);
+			text.append(decoder.decode(bytes, offset, length));
+			offset += length;
+		}
+		return text.toString();
+	}
+
+	private static String decode(Charset charset, byte[] bytes) {
+		return StreamDecoder.forCharset(charset).decode(bytes, 0, bytes.length).toString();
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TerminalInputWriter}, a selection is read in bounded chunks
+ * and an end marker inside the content never ends the paste early, even if it
+ * straddles two chunks.
+ */
+public class TerminalInputWriterTest {
+
+	private static final String START = "\u001b[200~";
+	private static final String END = "\u001b[201~";
+
+	@Test
+	public void testPromptAndSelection() throws IOException {
+		assertEquals(START + "explain\nint x;" + END, paste("explain", "int x;"));
+		assertEquals(START + "explain" + END, paste("explain", null));
+		assertEquals(START + "int x;" + END, paste(null, "int x;"));
+	}
+
+	@Test
+	public void testEndMarkerIsDropped() throws IOException {
+		assertEquals(START + "ab\ncd" + END, paste("a" + END + "b", "c" + END + "d"));
+	}
+
+	@Test
+	public void testEndMarkerStraddlingChunks() throws IOException {
+		int chunk = TerminalInputWriter.CHUNK_CHARS;
+		for (int split = 1; split < END.length(); split++) {
+			String before = "x".repeat(chunk - split);
+			String selection = before + END + "y";
+			assertEquals(START + before + "y" + END, paste(null, selection), "split at " + split);
+		}
+	}
+
+	@Test
+	public void testPartialEndMarkerIsKept() throws IOException {
+		int chunk = TerminalInputWriter.CHUNK_CHARS;
+		String partial = END.substring(0, 4);
+		String selection = "x".repeat(chunk - 2) + partial + "\u001b" + END.substring(1) + partial;
+		assertEquals(START + "x".repeat(chunk - 2) + partial + partial + END, paste(null, selection));
+	}
+
+	@Test
+	public void testSurrogatePairStraddlingChunks() throws IOException {
+		int chunk = TerminalInputWriter.CHUNK_CHARS;
+		String selection = "x".repeat(chunk - 1) + "😀" + "ä".repeat(chunk);
+		assertEquals(START + selection + END, paste(null, selection));
+	}
+
+	@Test
+	public void testReadsAreBounded() throws IOException {
+		int chunk = TerminalInputWriter.CHUNK_CHARS;
+		StringSource source = new StringSource("z".repeat(chunk * 3 + 17));
+		new TerminalInputWriter(new ByteArrayOutputStream(), StandardCharsets.UTF_8).paste("p", source);
+		assertEquals(4, source.reads);
+		assertTrue(source.longestRead <= chunk);
+	}
+
+	private static String paste(String text, String selection) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new TerminalInputWriter(out, StandardCharsets.UTF_8).paste(text,
+				selection == null ? null : new StringSource(selection));
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static final class StringSource implements TextSource {
+
+		private final String text;
+		private int reads;
+		private int longestRead;
+
+		StringSource(String text) {
+			this.text = text;
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		public CharSequence read(int offset, int length) {
+			reads++;
+			longestRead = Math.max(longestRead, length);
+			return text.substring(offset, offset + length);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class TerminalOutputMonitorTest {
+
+	private final TerminalOutputMonitor monitor = new TerminalOutputMonitor();
+
+	@Test
+	public void testTailKeepsTheLastOutput() {
+		assertEquals("", monitor.getTail());
+		output("Do you want ");
+		output("to run this command?");
+		assertEquals("Do you want to run this command?", monitor.getTail());
+	}
+
+	@Test
+	public void testTailIsBounded() {
+		output("x".repeat(TerminalOutputMonitor.TAIL_BYTES - 2));
+		output("abcd");
+		String tail = monitor.getTail();
+		assertEquals(TerminalOutputMonitor.TAIL_BYTES, tail.length());
+		assertEquals("xxabcd", tail.substring(tail.length() - 6));
+		output("y".repeat(TerminalOutputMonitor.TAIL_BYTES + 10));
+		assertEquals("y".repeat(TerminalOutputMonitor.TAIL_BYTES), monitor.getTail());
+	}
+
+	private void output(String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		// the stream reader passes a larger buffer than the bytes read
+		byte[] buffer = new byte[bytes.length + 16];
+		System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+		monitor.onContentReadFromStream(buffer, bytes.length);
+	}
+}
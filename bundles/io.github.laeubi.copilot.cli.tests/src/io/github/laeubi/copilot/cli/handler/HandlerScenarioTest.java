@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.handlers.IHandlerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.UiWatchdog;
+
+/**
+ * Executes the commands that open a session without showing a dialog, the
+ * tests run with a watchdog budget so any blocking entry point is recorded as
+ * a violation.
+ */
+public class HandlerScenarioTest {
+
+	private UiWatchdog watchdog;
+
+	private int violations;
+
+	@BeforeEach
+	public void setUp() {
+		watchdog = Activator.getDefault().getWatchdog();
+		assertTrue(watchdog.isEnabled(), "the tests must run with -D" + UiWatchdog.BUDGET_PROPERTY);
+		violations = watchdog.getViolations().size();
+	}
+
+	@Test
+	public void testAskCopilotDoesNotBlockTheDisplay() {
+		execute("io.github.laeubi.copilot.cli.command.askCopilot");
+		assertNoViolations();
+	}
+
+	@Test
+	public void testOpenPromptWithoutEditorDoesNotBlockTheDisplay() {
+		// without a text selection the session opens directly, without the prompt dialog
+		execute("io.github.laeubi.copilot.cli.command.openPrompt");
+		assertNoViolations();
+	}
+
+	private static void execute(String commandId) {
+		Display display = Display.getDefault();
+		display.syncExec(() -> {
+			IHandlerService handlers = PlatformUI.getWorkbench().getService(IHandlerService.class);
+			try {
+				handlers.executeCommand(commandId, null);
+			} catch (Exception e) {
+				throw new AssertionError("Executing " + commandId + " failed", e);
+			}
+			// let the terminal open and connect
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+			while (System.nanoTime() < deadline) {
+				while (display.readAndDispatch()) {
+					// process all pending events
+				}
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		});
+	}
+
+	private void assertNoViolations() {
+		List<String> all = watchdog.getViolations();
+		assertEquals(List.of(), all.subList(violations, all.size()));
+	}
+}
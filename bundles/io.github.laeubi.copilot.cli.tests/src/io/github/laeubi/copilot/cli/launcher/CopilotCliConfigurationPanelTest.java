@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.terminal.view.core.ITerminalsConnectorConstants;
+import org.eclipse.terminal.view.ui.launcher.IConfigurationPanelContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.UiWatchdog;
+
+/**
+ * Drives the configuration panel on the display thread, the tests run with a
+ * watchdog budget so any blocking entry point is recorded as a violation.
+ */
+public class CopilotCliConfigurationPanelTest {
+
+	private static final IConfigurationPanelContainer CONTAINER = new IConfigurationPanelContainer() {
+
+		@Override
+		public void validate() {
+			// nothing to update
+		}
+
+		@Override
+		public void setMessage(String message, int messageType) {
+			// nothing to show
+		}
+	};
+
+	private Path directory;
+
+	private UiWatchdog watchdog;
+
+	private int violations;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("panel");
+		watchdog = Activator.getDefault().getWatchdog();
+		assertTrue(watchdog.isEnabled(), "the tests must run with -D" + UiWatchdog.BUDGET_PROPERTY);
+		violations = watchdog.getViolations().size();
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(directory);
+	}
+
+	@Test
+	public void testValidatesExistingDirectory() {
+		assertEquals(Boolean.TRUE, validate(directory.toString()));
+		assertNoViolations();
+	}
+
+	@Test
+	public void testRejectsMissingDirectory() {
+		assertEquals(Boolean.FALSE, validate(directory.resolve("missing").toString()));
+		assertNoViolations();
+	}
+
+	private Boolean validate(String workingDir) {
+		Display display = Display.getDefault();
+		Boolean[] valid = new Boolean[1];
+		display.syncExec(() -> {
+			Shell shell = new Shell(display);
+			try {
+				CopilotCliConfigurationPanel panel = new CopilotCliConfigurationPanel(CONTAINER);
+				panel.setupPanel(shell);
+				Map<String, Object> data = new HashMap<>();
+				data.put(ITerminalsConnectorConstants.PROP_PROCESS_WORKING_DIR, workingDir);
+				panel.setupData(data);
+				// the validation runs delayed and completes in the background
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+				while (System.nanoTime() < deadline && !panel.isValid() && panel.getMessage() == null) {
+					while (display.readAndDispatch()) {
+						// process all pending events
+					}
+					sleep();
+				}
+				valid[0] = panel.isValid();
+				Map<String, Object> extracted = new HashMap<>();
+				panel.extractData(extracted);
+				assertEquals(workingDir, extracted.get(ITerminalsConnectorConstants.PROP_PROCESS_WORKING_DIR));
+			} finally {
+				shell.dispose();
+			}
+		});
+		return valid[0];
+	}
+
+	private void assertNoViolations() {
+		List<String> all = watchdog.getViolations();
+		assertEquals(List.of(), all.subList(violations, all.size()));
+	}
+
+	private static void sleep() {
+		try {
+			Thread.sleep(10);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DirectoryCacheTest {
+
+	private Path root;
+
+	private DirectoryCache cache;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("directory-cache");
+		cache = new DirectoryCache(Runnable::run);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(root)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testListsSortedSubdirectories() throws IOException {
+		Files.createDirectory(root.resolve("b"));
+		Files.createDirectory(root.resolve("A"));
+		Files.createFile(root.resolve("file.txt"));
+		DirectoryCache.Listing listing = cache.list(root).join();
+		assertTrue(listing.directory());
+		assertEquals(List.of("A", "b"), listing.subdirectories());
+		assertEquals(listing, cache.getNow(root));
+	}
+
+	@Test
+	public void testExistingDirectoryIsReused() throws IOException {
+		cache.list(root).join();
+		Files.createDirectory(root.resolve("new"));
+		assertEquals(List.of(), cache.list(root).join().subdirectories());
+	}
+
+	@Test
+	public void testMissingDirectoryIsNotRemembered() throws IOException {
+		Path missing = root.resolve("missing");
+		assertFalse(cache.list(missing).join().directory());
+		assertNull(cache.getNow(missing));
+		Files.createDirectory(missing);
+		assertTrue(cache.list(missing).join().directory());
+	}
+
+	@Test
+	public void testInvalidateRereadsDirectoryAndParent() throws IOException {
+		Path child = root.resolve("child");
+		cache.list(root).join();
+		cache.list(child).join();
+		Files.createDirectory(child);
+		cache.invalidate(child);
+		assertNull(cache.getNow(root));
+		assertEquals(List.of("child"), cache.list(root).join().subdirectories());
+		assertTrue(cache.list(child).join().directory());
+	}
+}
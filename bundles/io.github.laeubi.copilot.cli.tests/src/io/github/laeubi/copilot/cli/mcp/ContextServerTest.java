@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.mcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.laeubi.copilot.cli.BackgroundExecutor;
+
+/**
+ * Talks plain HTTP to the {@link ContextServer} like the CLI does
+ */
+public class ContextServerTest {
+
+	private Path directory;
+	private BackgroundExecutor executor;
+	private ContextServer server;
+	private Path configFile;
+	private URI url;
+	private String authorization;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("context-server");
+		executor = new BackgroundExecutor();
+		server = new ContextServer(directory.resolve("config"), executor);
+		configFile = server.getConfigFile(directory);
+		Map<String, Object> config = (Map<String, Object>) Json.parse(Files.readString(configFile));
+		Map<String, Object> entry = (Map<String, Object>) ((Map<String, Object>) config.get("mcpServers"))
+				.get("eclipse-workspace");
+		url = URI.create((String) entry.get("url"));
+		authorization = (String) ((Map<String, Object>) entry.get("headers")).get("Authorization");
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		server.stop();
+		executor.shutdown();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testConfigurationIsReused() throws IOException {
+		assertEquals(configFile, server.getConfigFile(directory));
+	}
+
+	@Test
+	public void testMissingToken() throws IOException {
+		assertTrue(request("POST", url.getPath(), null, null, "{}").startsWith("HTTP/1.1 401"));
+	}
+
+	@Test
+	public void testWrongToken() throws IOException {
+		assertTrue(request("POST", url.getPath(), "Bearer 1234", null, "{}").startsWith("HTTP/1.1 401"));
+	}
+
+	@Test
+	public void testUnknownEndpoint() throws IOException {
+		assertTrue(request("POST", "/other", authorization, null, "{}").startsWith("HTTP/1.1 404"));
+	}
+
+	@Test
+	public void testRequestFromWebPage() throws IOException {
+		String response = request("POST", url.getPath(), authorization, "http://example.com", "{}");
+		assertTrue(response.startsWith("HTTP/1.1 403"), response);
+	}
+
+	@Test
+	public void testOnlyPost() throws IOException {
+		assertTrue(request("GET", url.getPath(), authorization, null, null).startsWith("HTTP/1.1 405"));
+	}
+
+	@Test
+	public void testInitialize() throws IOException {
+		Map<?, ?> result = call("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+				+ "\"params\":{\"protocolVersion\":\"2025-03-26\"}}");
+		assertEquals(1L, result.get("id"));
+		Map<?, ?> initialize = (Map<?, ?>) result.get("result");
+		assertEquals("2025-03-26", initialize.get("protocolVersion"));
+		assertEquals("eclipse-workspace", ((Map<?, ?>) initialize.get("serverInfo")).get("name"));
+	}
+
+	@Test
+	public void testToolsList() throws IOException {
+		Map<?, ?> result = call("{\"jsonrpc\":\"2.0\",\"id\":\"list\",\"method\":\"tools/list\"}");
+		List<?> tools = (List<?>) ((Map<?, ?>) result.get("result")).get("tools");
+		assertFalse(tools.isEmpty());
+		for (Object tool : tools) {
+			assertTrue(((Map<?, ?>) tool).get("inputSchema") instanceof Map);
+		}
+	}
+
+	@Test
+	public void testUnknownMethod() throws IOException {
+		Map<?, ?> result = call("{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"unknown\"}");
+		assertEquals(-32601L, ((Map<?, ?>) result.get("error")).get("code"));
+	}
+
+	@Test
+	public void testNotificationIsAccepted() throws IOException {
+		String response = request("POST", url.getPath(), authorization, null,
+				"{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}");
+		assertTrue(response.startsWith("HTTP/1.1 202"), response);
+	}
+
+	@Test
+	public void testDeeplyNestedRequest() throws IOException {
+		Map<?, ?> result = call("[".repeat(100000));
+		assertEquals(-32700L, ((Map<?, ?>) result.get("error")).get("code"));
+	}
+
+	@Test
+	public void testStopDeletesConfiguration() throws IOException {
+		server.stop();
+		assertFalse(Files.exists(configFile));
+	}
+
+	private Map<?, ?> call(String body) throws IOException {
+		String response = request("POST", url.getPath(), authorization, null, body);
+		assertTrue(response.startsWith("HTTP/1.1 200"), response);
+		return (Map<?, ?>) Json.parse(response.substring(response.indexOf("\r\n\r\n") + 4));
+	}
+
+	private String request(String method, String path, String authorization, String origin, String body)
+			throws IOException {
+		try (Socket socket = new Socket(url.getHost(), url.getPort())) {
+			byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+			StringBuilder head = new StringBuilder();
+			head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+			head.append("Host: ").append(url.getHost()).append("\r\n");
+			if (authorization != null) {
+				head.append("Authorization: ").append(authorization).append("\r\n");
+			}
+			if (origin != null) {
+				head.append("Origin: ").append(origin).append("\r\n");
+			}
+			if (body != null) {
+				head.append("Content-Type: application/json\r\n");
+				head.append("Content-Length: ").append(content.length).append("\r\n");
+			}
+			head.append("\r\n");
+			OutputStream out = socket.getOutputStream();
+			out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+			out.write(content);
+			out.flush();
+			InputStream in = socket.getInputStream();
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.mcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class JsonTest {
+
+	@Test
+	public void testParseValues() {
+		assertEquals(Boolean.TRUE, Json.parse("true"));
+		assertEquals(Boolean.FALSE, Json.parse(" false "));
+		assertNull(Json.parse("null"));
+		assertEquals(42L, Json.parse("42"));
+		assertEquals(-1.5e3, Json.parse("-1.5e3"));
+		assertEquals("text", Json.parse("\"text\""));
+	}
+
+	@Test
+	public void testParseStructures() {
+		Object value = Json.parse("{\"a\": [1, {\"b\": null}], \"c\": {}}");
+		Map<String, Object> expected = new LinkedHashMap<>();
+		Map<String, Object> inner = new LinkedHashMap<>();
+		inner.put("b", null);
+		expected.put("a", List.of(1L, inner));
+		expected.put("c", Map.of());
+		assertEquals(expected, value);
+	}
+
+	@Test
+	public void testEscapes() {
+		assertEquals("quote\" slash\\ tab\t line\n é ☃", Json.parse("\"quote\\\" slash\\\\ tab\\t line\\n \\u00e9 \\u2603\""));
+	}
+
+	@Test
+	public void testWriteRoundTrip() {
+		Map<String, Object> value = new LinkedHashMap<>();
+		value.put("name", "a \"quoted\"\nvalue\u0001");
+		value.put("list", List.of(1L, 2.5, true));
+		value.put("empty", null);
+		String json = Json.write(value);
+		assertEquals("{\"name\":\"a \\\"quoted\\\"\\nvalue\\u0001\",\"list\":[1,2.5,true],\"empty\":null}", json);
+		assertEquals(value, Json.parse(json));
+	}
+
+	@Test
+	public void testNonFiniteNumbersAreWrittenAsNull() {
+		assertEquals("[null,null]", Json.write(List.of(Double.NaN, Double.POSITIVE_INFINITY)));
+	}
+
+	@Test
+	public void testInvalidInput() {
+		for (String text : List.of("", "{", "[1,", "{\"a\" 1}", "{1: 2}", "\"open", "tru", "1 2", "\"\\u12\"", "-")) {
+			assertThrows(IllegalArgumentException.class, () -> Json.parse(text), text);
+		}
+	}
+
+	@Test
+	public void testNestingLimit() {
+		String allowed = "[".repeat(Json.MAX_DEPTH) + "]".repeat(Json.MAX_DEPTH);
+		Json.parse(allowed);
+		String tooDeep = "[".repeat(Json.MAX_DEPTH + 1) + "]".repeat(Json.MAX_DEPTH + 1);
+		assertThrows(IllegalArgumentException.class, () -> Json.parse(tooDeep));
+		// must be rejected before the stack overflows
+		assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\":".repeat(100000)));
+	}
+}
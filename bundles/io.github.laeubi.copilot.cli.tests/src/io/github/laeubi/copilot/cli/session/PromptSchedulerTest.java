@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker;
+import io.github.laeubi.copilot.cli.session.PromptScheduler.Priority;
+import io.github.laeubi.copilot.cli.session.PromptScheduler.QueuedPrompt;
+
+public class PromptSchedulerTest {
+
+	private final ProcessResourceTracker tracker = new ProcessResourceTracker();
+
+	private final AtomicInteger limit = new AtomicInteger(1);
+
+	private final FakeState state = new FakeState();
+
+	private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+	private PromptScheduler scheduler;
+
+	/**
+	 * Lets the tests decide when a session is ready, busy and done
+	 */
+	private static final class FakeState implements PromptScheduler.SessionState {
+
+		final Map<CopilotCliConnector, CompletableFuture<Void>> ready = new ConcurrentHashMap<>();
+		final Set<CopilotCliConnector> busy = ConcurrentHashMap.newKeySet();
+		final List<CopilotCliConnector> submits = Collections.synchronizedList(new ArrayList<>());
+		final Map<CopilotCliConnector, CompletableFuture<Void>> answers = new ConcurrentHashMap<>();
+		volatile Runnable afterIdleCheck;
+
+		@Override
+		public CompletableFuture<Void> awaitReady(CopilotCliConnector connector) {
+			return ready.computeIfAbsent(connector, c -> new CompletableFuture<>());
+		}
+
+		@Override
+		public boolean isIdle(CopilotCliConnector connector) {
+			boolean idle = !busy.contains(connector);
+			Runnable check = afterIdleCheck;
+			if (check != null) {
+				afterIdleCheck = null;
+				check.run();
+			}
+			return idle;
+		}
+
+		@Override
+		public void submit(CopilotCliConnector connector) {
+			submits.add(connector);
+		}
+
+		@Override
+		public CompletableFuture<Void> awaitAnswer(CopilotCliConnector connector) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			answers.put(connector, future);
+			return future;
+		}
+	}
+
+	@BeforeEach
+	public void setUp() {
+		scheduler = new PromptScheduler(tracker, Runnable::run, limit::get, state);
+	}
+
+	@Test
+	public void testPriorityInsertion() {
+		limit.set(0);
+		CopilotCliConnector connector = start();
+		enqueue(connector, "low", Priority.LOW);
+		enqueue(connector, "normal", Priority.NORMAL);
+		enqueue(connector, "high", Priority.HIGH);
+		enqueue(connector, "second normal", Priority.NORMAL);
+		assertEquals(List.of("high", "normal", "second normal", "low"), texts(connector));
+	}
+
+	@Test
+	public void testMoveAndCancel() {
+		limit.set(0);
+		CopilotCliConnector connector = start();
+		QueuedPrompt first = enqueue(connector, "first", Priority.NORMAL);
+		enqueue(connector, "second", Priority.NORMAL);
+		QueuedPrompt third = enqueue(connector, "third", Priority.NORMAL);
+		assertTrue(scheduler.move(third, 0));
+		assertEquals(List.of("third", "first", "second"), texts(connector));
+		assertTrue(scheduler.move(third, 42));
+		assertEquals(List.of("first", "second", "third"), texts(connector));
+		assertTrue(scheduler.cancel(first));
+		assertTrue(first.getCompletion().isCancelled());
+		assertEquals(List.of("second", "third"), texts(connector));
+		assertFalse(scheduler.move(first, 0));
+		assertFalse(scheduler.cancel(first));
+	}
+
+	@Test
+	public void testSetPriority() {
+		limit.set(0);
+		CopilotCliConnector connector = start();
+		QueuedPrompt first = enqueue(connector, "first", Priority.NORMAL);
+		enqueue(connector, "second", Priority.NORMAL);
+		QueuedPrompt third = enqueue(connector, "third", Priority.NORMAL);
+		// the same priority queues it behind the others
+		assertTrue(scheduler.setPriority(first, Priority.NORMAL));
+		assertEquals(List.of("second", "third", "first"), texts(connector));
+		assertTrue(scheduler.setPriority(third, Priority.HIGH));
+		assertEquals(List.of("third", "second", "first"), texts(connector));
+		assertEquals(Priority.HIGH, third.getPriority());
+	}
+
+	@Test
+	public void testDispatchWaitsForReadySession() {
+		CopilotCliConnector connector = start(false);
+		enqueue(connector, "prompt", Priority.NORMAL);
+		assertEquals(List.of(), sent);
+		state.ready.get(connector).complete(null);
+		assertEquals(List.of("prompt"), sent);
+		assertEquals(List.of(), texts(connector));
+	}
+
+	@Test
+	public void testDispatchWaitsForIdleSession() throws InterruptedException {
+		CopilotCliConnector connector = start();
+		state.busy.add(connector);
+		enqueue(connector, "prompt", Priority.NORMAL);
+		assertEquals(List.of(), sent);
+		state.busy.remove(connector);
+		// the scheduler checks busy sessions again after a while
+		for (int i = 0; i < 100 && sent.isEmpty(); i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(List.of("prompt"), sent);
+	}
+
+	@Test
+	public void testSessionBusyBeforePastingKeepsThePrompt() throws InterruptedException {
+		CopilotCliConnector connector = start();
+		// the user starts typing right after the prompt was dispatched
+		state.afterIdleCheck = () -> state.busy.add(connector);
+		QueuedPrompt prompt = enqueue(connector, "prompt", Priority.NORMAL);
+		assertEquals(List.of(), sent);
+		assertEquals(List.of("prompt"), texts(connector));
+		assertFalse(prompt.getCompletion().isDone());
+		state.busy.remove(connector);
+		for (int i = 0; i < 100 && sent.isEmpty(); i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(List.of("prompt"), sent);
+		assertEquals(List.of(connector), state.submits);
+	}
+
+	@Test
+	public void testPromptIsSubmittedAndDoneAfterAnswer() {
+		CopilotCliConnector connector = start();
+		List<CopilotCliConnector> submitted = new ArrayList<>();
+		QueuedPrompt prompt = scheduler.enqueue(connector, "prompt", Priority.NORMAL,
+				new PromptScheduler.PromptTask() {
+
+					@Override
+					public boolean send(CopilotCliConnector session) {
+						sent.add("prompt");
+						return true;
+					}
+
+					@Override
+					public void submitted(CopilotCliConnector session) {
+						submitted.add(session);
+					}
+				});
+		enqueue(connector, "next", Priority.NORMAL);
+		assertEquals(List.of("prompt"), sent);
+		assertEquals(List.of(connector), state.submits);
+		assertEquals(List.of(connector), submitted);
+		assertFalse(prompt.getCompletion().isDone());
+		assertEquals(List.of("prompt"), sent);
+		state.answers.get(connector).complete(null);
+		assertTrue(prompt.getCompletion().isDone());
+		assertEquals(List.of("prompt", "next"), sent);
+	}
+
+	@Test
+	public void testPromptNotSentFreesTheSlot() {
+		CopilotCliConnector connector = start();
+		QueuedPrompt prompt = scheduler.enqueue(connector, "cached", Priority.NORMAL, session -> false);
+		assertTrue(prompt.getCompletion().isDone());
+		assertEquals(List.of(), state.submits);
+		enqueue(connector, "next", Priority.NORMAL);
+		assertEquals(List.of("next"), sent);
+	}
+
+	@Test
+	public void testFailingSendFreesTheSlot() {
+		CopilotCliConnector connector = start();
+		QueuedPrompt prompt = scheduler.enqueue(connector, "failing", Priority.NORMAL, session -> {
+			throw new IOException("not connected");
+		});
+		assertTrue(prompt.getCompletion().isCompletedExceptionally());
+		enqueue(connector, "next", Priority.NORMAL);
+		assertEquals(List.of("next"), sent);
+	}
+
+	@Test
+	public void testRoundRobin() {
+		CopilotCliConnector first = start();
+		CopilotCliConnector second = start();
+		enqueue(first, "first 1", Priority.NORMAL);
+		enqueue(first, "first 2", Priority.NORMAL);
+		enqueue(first, "first 3", Priority.NORMAL);
+		enqueue(second, "second 1", Priority.NORMAL);
+		enqueue(second, "second 2", Priority.NORMAL);
+		answer(first);
+		answer(second);
+		answer(first);
+		answer(second);
+		assertEquals(List.of("first 1", "second 1", "first 2", "second 2", "first 3"), sent);
+	}
+
+	@Test
+	public void testHighestPriorityGetsTheFreeSlot() {
+		CopilotCliConnector first = start();
+		CopilotCliConnector second = start();
+		enqueue(first, "first 1", Priority.NORMAL);
+		enqueue(first, "first 2", Priority.NORMAL);
+		enqueue(second, "second low", Priority.LOW);
+		enqueue(second, "second high", Priority.HIGH);
+		answer(first);
+		assertEquals(List.of("first 1", "second high"), sent);
+	}
+
+	@Test
+	public void testGlobalLimit() {
+		limit.set(2);
+		CopilotCliConnector first = start();
+		CopilotCliConnector second = start();
+		CopilotCliConnector third = start();
+		enqueue(first, "first", Priority.NORMAL);
+		enqueue(second, "second", Priority.NORMAL);
+		enqueue(third, "third", Priority.NORMAL);
+		assertEquals(List.of("first", "second"), sent);
+		answer(second);
+		assertEquals(List.of("first", "second", "third"), sent);
+	}
+
+	@Test
+	public void testEndedSessionFreesItsSlotOnce() {
+		CopilotCliConnector first = start();
+		CopilotCliConnector second = start();
+		CopilotCliConnector third = start();
+		enqueue(first, "first", Priority.NORMAL);
+		QueuedPrompt dropped = enqueue(first, "dropped", Priority.NORMAL);
+		enqueue(second, "second", Priority.NORMAL);
+		end(first);
+		assertTrue(dropped.getCompletion().isCancelled());
+		assertEquals(List.of("first", "second"), sent);
+		// the answer of the ended session must not free another slot
+		answer(first);
+		enqueue(third, "third", Priority.NORMAL);
+		assertEquals(List.of("first", "second"), sent);
+		answer(second);
+		assertEquals(List.of("first", "second", "third"), sent);
+	}
+
+	@Test
+	public void testEnqueueRejectsEndedSession() {
+		CopilotCliConnector connector = start();
+		end(connector);
+		assertThrows(IllegalStateException.class, () -> enqueue(connector, "late", Priority.NORMAL));
+		assertEquals(List.of(), texts(connector));
+	}
+
+	private CopilotCliConnector start() {
+		return start(true);
+	}
+
+	private CopilotCliConnector start(boolean ready) {
+		CopilotCliConnector connector = new CopilotCliConnector();
+		tracker.register(connector, null, null);
+		scheduler.sessionStarted(connector);
+		if (ready) {
+			state.ready.get(connector).complete(null);
+		}
+		return connector;
+	}
+
+	private void end(CopilotCliConnector connector) {
+		tracker.release(connector);
+		scheduler.sessionEnded(connector);
+	}
+
+	private void answer(CopilotCliConnector connector) {
+		state.answers.get(connector).complete(null);
+	}
+
+	private QueuedPrompt enqueue(CopilotCliConnector connector, String text, Priority priority) {
+		return scheduler.enqueue(connector, text, priority, session -> {
+			sent.add(text);
+			return true;
+		});
+	}
+
+	private List<String> texts(CopilotCliConnector connector) {
+		return scheduler.getQueue(connector).stream().map(QueuedPrompt::getText).toList();
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.eclipse.terminal.connector.process.ProcessSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+
+public class SessionIdResolverTest {
+
+	private static final String FIRST = "0b6f3c4e-1a2b-4c3d-8e9f-0123456789ab";
+	private static final String SECOND = "7d1e2f30-4b5c-4d6e-9f80-abcdef012345";
+
+	private Path home;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		home = Files.createTempDirectory("copilot-home");
+		Files.createDirectories(home.resolve("session-state"));
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(home)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testUnknownBeforeTheCliCreatedTheSession() {
+		SessionIdResolver resolver = new SessionIdResolver(home, command -> {
+		});
+		CopilotCliConnector connector = new CopilotCliConnector();
+		resolver.sessionStarted(connector);
+		resolver.resolve();
+		assertNull(resolver.getSessionId(connector));
+	}
+
+	@Test
+	public void testClaimedSessionsAreNotMatchedAgain() throws Exception {
+		SessionIdResolver resolver = new SessionIdResolver(home, command -> {
+		});
+		CopilotCliConnector first = new CopilotCliConnector();
+		CopilotCliConnector second = new CopilotCliConnector();
+		resolver.sessionStarted(first);
+		Files.createFile(home.resolve("session-state").resolve(FIRST + ".jsonl"));
+		resolver.resolve();
+		resolver.sessionStarted(second);
+		Files.createDirectories(home.resolve("session-state").resolve(SECOND));
+		resolver.resolve();
+		assertEquals(SECOND, resolver.getSessionId(second));
+		assertEquals(FIRST, resolver.getSessionId(first));
+	}
+
+	@Test
+	public void testEndedSessionReleasesItsId() throws Exception {
+		SessionIdResolver resolver = new SessionIdResolver(home, command -> {
+		});
+		CopilotCliConnector connector = new CopilotCliConnector();
+		resolver.sessionStarted(connector);
+		Files.createFile(home.resolve("session-state").resolve(FIRST + ".jsonl"));
+		resolver.resolve();
+		assertEquals(FIRST, resolver.getSessionId(connector));
+		resolver.sessionEnded(connector);
+		// a session that was never spawned keeps the id it was restored from
+		assertNull(resolver.getSessionId(connector));
+	}
+
+	@Test
+	public void testOldSessionsAreIgnored() throws Exception {
+		Path old = Files.createFile(home.resolve("session-state").resolve(FIRST + ".jsonl"));
+		FileTime epoch = FileTime.fromMillis(0);
+		Files.getFileAttributeView(old, BasicFileAttributeView.class).setTimes(epoch, null, epoch);
+		SessionIdResolver resolver = new SessionIdResolver(home, command -> {
+		});
+		CopilotCliConnector connector = new CopilotCliConnector();
+		resolver.sessionStarted(connector);
+		resolver.resolve();
+		assertNull(resolver.getSessionId(connector));
+	}
+
+	@Test
+	public void testAmbiguousSessionsAreNotGuessed() throws Exception {
+		SessionIdResolver resolver = new SessionIdResolver(home, command -> {
+		});
+		CopilotCliConnector first = new CopilotCliConnector();
+		CopilotCliConnector second = new CopilotCliConnector();
+		resolver.sessionStarted(first);
+		resolver.sessionStarted(second);
+		Files.createFile(home.resolve("session-state").resolve(FIRST + ".jsonl"));
+		Files.createFile(home.resolve("session-state").resolve(SECOND + ".jsonl"));
+		resolver.resolve();
+		assertNull(resolver.getSessionId(first));
+		assertNull(resolver.getSessionId(second));
+	}
+
+	@Test
+	public void testSessionsAreMatchedByWorkingDirectory() throws Exception {
+		SessionIdResolver resolver = new SessionIdResolver(home, command -> {
+		});
+		CopilotCliConnector first = connector("/work/first");
+		CopilotCliConnector second = connector("/work/second");
+		resolver.sessionStarted(first);
+		resolver.sessionStarted(second);
+		Path state = home.resolve("session-state");
+		Files.writeString(Files.createDirectories(state.resolve(SECOND)).resolve("workspace.yaml"),
+				"id: " + SECOND + "\ncwd: /work/second\n");
+		Files.writeString(state.resolve(FIRST + ".jsonl"),
+				"{\"type\":\"session.start\",\"data\":{\"cwd\":\"/work/first\"}}\n");
+		resolver.resolve();
+		assertEquals(FIRST, resolver.getSessionId(first));
+		assertEquals(SECOND, resolver.getSessionId(second));
+	}
+
+	private static CopilotCliConnector connector(String workingDir) {
+		ProcessSettings settings = new ProcessSettings();
+		settings.setWorkingDir(workingDir);
+		return new CopilotCliConnector(settings);
+	}
+}
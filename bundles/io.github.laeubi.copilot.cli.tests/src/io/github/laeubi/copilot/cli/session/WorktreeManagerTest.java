@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.eclipse.terminal.connector.process.ProcessSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker;
+
+/**
+ * Tests for {@link WorktreeManager}, runs the git executable of the system
+ */
+public class WorktreeManagerTest {
+
+	private Path repository;
+
+	private Path worktrees;
+
+	private WorktreeManager manager;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		repository = Files.createTempDirectory("copilot-repository").toRealPath();
+		worktrees = Files.createTempDirectory("copilot-worktrees").toRealPath();
+		git("init", "-q");
+		Files.writeString(repository.resolve("README"), "hello");
+		git("add", "README");
+		git("-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "-m", "initial");
+		manager = new WorktreeManager(worktrees, new ProcessResourceTracker(), Runnable::run, () -> 3);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		for (Path path : List.of(worktrees, repository)) {
+			try (Stream<Path> files = Files.walk(path)) {
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	@Test
+	public void testEndedSlotIsRecycled() throws Exception {
+		Path slot = manager.acquire(repository).get();
+		end(slot);
+		assertTrue(Files.isDirectory(slot));
+		assertEquals(slot, manager.acquire(repository).get());
+	}
+
+	@Test
+	public void testIdleSlotsAboveTheLimitAreRemoved() throws Exception {
+		Path first = manager.acquire(repository).get();
+		Path second = manager.acquire(repository).get();
+		assertNotEquals(first, second);
+		end(first);
+		// the first one is kept for the next session
+		assertTrue(Files.isDirectory(first));
+		end(second);
+		assertFalse(Files.exists(second));
+		assertTrue(Files.isDirectory(first));
+		assertFalse(git("worktree", "list").contains(second.toString()));
+	}
+
+	@Test
+	public void testSlotWithChangesIsKept() throws Exception {
+		Path first = manager.acquire(repository).get();
+		Path second = manager.acquire(repository).get();
+		end(first);
+		Files.writeString(second.resolve("README"), "changed by the agent");
+		end(second);
+		assertTrue(Files.isDirectory(second));
+	}
+
+	/**
+	 * Starts and ends a session in the slot
+	 */
+	private void end(Path slot) {
+		ProcessSettings settings = new ProcessSettings();
+		settings.setWorkingDir(slot.toString());
+		CopilotCliConnector connector = new CopilotCliConnector(settings);
+		manager.sessionStarted(connector);
+		manager.sessionEnded(connector);
+	}
+
+	private String git(String... args) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add("git");
+		command.addAll(List.of(args));
+		Process process = new ProcessBuilder(command).directory(repository.toFile()).redirectErrorStream(true)
+				.start();
+		String output = new String(process.getInputStream().readAllBytes());
+		assertEquals(0, process.waitFor(), output);
+		return output;
+	}
+}
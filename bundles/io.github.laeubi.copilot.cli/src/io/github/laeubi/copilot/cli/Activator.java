@@ -1,8 +1,22 @@
 package io.github.laeubi.copilot.cli;
 
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import io.github.laeubi.copilot.cli.cache.ResponseCache;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker;
+import io.github.laeubi.copilot.cli.history.PromptHistoryStore;
+import io.github.laeubi.copilot.cli.mcp.ContextServer;
+import io.github.laeubi.copilot.cli.session.AgentFileWatcher;
+import io.github.laeubi.copilot.cli.session.BuildGovernor;
+import io.github.laeubi.copilot.cli.session.PromptScheduler;
+import io.github.laeubi.copilot.cli.session.SessionIdResolver;
+import io.github.laeubi.copilot.cli.session.WorktreeManager;
+
 /**
  * The activator class controls the plug-in life cycle
  */
@@ -14,6 +28,28 @@ public class Activator extends AbstractUIPlugin {
 	// The shared instance
 	private static Activator plugin;
 
+	private final ProcessResourceTracker resourceTracker = new ProcessResourceTracker();
+
+	private BackgroundExecutor executor;
+
+	private AgentFileWatcher fileWatcher;
+
+	private BuildGovernor buildGovernor;
+
+	private ResponseCache responseCache;
+
+	private PromptHistoryStore promptHistories;
+
+	private WorktreeManager worktrees;
+
+	private ContextServer contextServer;
+
+	private PromptScheduler promptScheduler;
+
+	private SessionIdResolver sessionIds;
+
+	private final UiWatchdog watchdog = new UiWatchdog();
+
 	/**
 	 * The constructor
 	 */
@@ -23,12 +59,52 @@ public class Activator extends AbstractUIPlugin {
 	@Override
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
+		executor = new BackgroundExecutor();
+		fileWatcher = new AgentFileWatcher(executor);
+		buildGovernor = new BuildGovernor(resourceTracker, fileWatcher, executor.io());
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(buildGovernor,
+				IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.POST_BUILD);
+		Job.getJobManager().addJobChangeListener(buildGovernor);
+		promptHistories = new PromptHistoryStore(getStateLocation().append("prompt-history").toPath(), executor);
+		worktrees = new WorktreeManager(getStateLocation().append("worktrees").toPath(), resourceTracker,
+				executor.io());
+		promptScheduler = new PromptScheduler(resourceTracker, executor.io());
+		sessionIds = new SessionIdResolver(executor.io());
+		resourceTracker.addListener(worktrees);
+		resourceTracker.addListener(promptScheduler);
+		resourceTracker.addListener(fileWatcher);
+		resourceTracker.addListener(buildGovernor);
+		resourceTracker.addListener(sessionIds);
 		plugin = this;
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
 		plugin = null;
+		resourceTracker.removeListener(fileWatcher);
+		resourceTracker.removeListener(buildGovernor);
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(buildGovernor);
+		Job.getJobManager().removeJobChangeListener(buildGovernor);
+		resourceTracker.removeListener(sessionIds);
+		resourceTracker.removeListener(worktrees);
+		resourceTracker.removeListener(promptScheduler);
+		promptScheduler.dispose();
+		resourceTracker.dispose();
+		fileWatcher.dispose();
+		buildGovernor.dispose();
+		synchronized (this) {
+			if (responseCache != null) {
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(responseCache);
+			}
+			if (contextServer != null) {
+				contextServer.stop();
+			}
+		}
+		executor.shutdown();
+		watchdog.dispose();
+		if (watchdog.hasStalls()) {
+			ILog.get().info("Copilot CLI entry points blocked the display thread:\n" + watchdog.getReport());
+		}
 		super.stop(context);
 	}
 
@@ -41,4 +117,115 @@ public class Activator extends AbstractUIPlugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns the tracker for all processes and PTYs spawned by this plug-in
+	 *
+	 * @return the resource tracker
+	 */
+	public ProcessResourceTracker getResourceTracker() {
+		return resourceTracker;
+	}
+
+	/**
+	 * Returns the executor to be used for all background work of this plug-in
+	 *
+	 * @return the background executor
+	 */
+	public BackgroundExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Returns the watcher refreshing the files changed by Copilot
+	 *
+	 * @return the file watcher
+	 */
+	public AgentFileWatcher getFileWatcher() {
+		return fileWatcher;
+	}
+
+	/**
+	 * Returns the watchdog sampling the display thread while plug-in code runs
+	 * on it
+	 *
+	 * @return the UI watchdog
+	 */
+	public UiWatchdog getWatchdog() {
+		return watchdog;
+	}
+
+	/**
+	 * Returns the prompt histories of the repositories
+	 *
+	 * @return the prompt history store
+	 */
+	public PromptHistoryStore getPromptHistories() {
+		return promptHistories;
+	}
+
+	/**
+	 * Returns the scheduler dispatching queued prompts to the sessions
+	 *
+	 * @return the prompt scheduler
+	 */
+	public PromptScheduler getPromptScheduler() {
+		return promptScheduler;
+	}
+
+	/**
+	 * Returns the resolver for the ids of the copilot sessions, used to resume
+	 * restored sessions
+	 *
+	 * @return the session id resolver
+	 */
+	public SessionIdResolver getSessionIds() {
+		return sessionIds;
+	}
+
+	/**
+	 * Returns the manager of the worktrees used by parallel sessions
+	 *
+	 * @return the worktree manager
+	 */
+	public WorktreeManager getWorktrees() {
+		return worktrees;
+	}
+
+	/**
+	 * Returns the server exposing the workspace to the copilot CLI, it only
+	 * starts listening once a configuration file is requested
+	 *
+	 * @return the context server
+	 */
+	public synchronized ContextServer getContextServer() {
+		if (contextServer == null) {
+			contextServer = new ContextServer(getStateLocation().append("mcp").toPath(), executor);
+		}
+		return contextServer;
+	}
+
+	/**
+	 * Returns the cache for responses of repeated prompts, stored in the state
+	 * location of this plug-in
+	 *
+	 * @return the response cache
+	 */
+	public synchronized ResponseCache getResponseCache() {
+		if (responseCache == null) {
+			responseCache = new ResponseCache(getStateLocation().append("response-cache").toPath(), executor.io());
+			ResourcesPlugin.getWorkspace().addResourceChangeListener(responseCache, IResourceChangeEvent.POST_CHANGE);
+		}
+		return responseCache;
+	}
+
+	/**
+	 * Returns the cache for responses of repeated prompts if it was already
+	 * created, without creating it
+	 *
+	 * @return the response cache or <code>null</code>
+	 */
+	public synchronized ResponseCache findResponseCache() {
+		return responseCache;
+	}
+
 }
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.core.runtime.ILog;
+
+/**
+ * Plugin wide execution layer for all background work.
+ *
+ * Blocking I/O (filesystem walks, process I/O) runs on the shared
+ * {@link #io()} pool. A service that must not compete with it, like a server
+ * answering clients, gets its own pool from {@link #newPool(String, int, int)}.
+ * All pools have named threads, bounded queues and a fixed upper thread count
+ * so the plugin never piles up work on the workbench job pool, and report their
+ * usage through {@link #getStatistics()}. When running on a Java 21+ runtime
+ * the I/O pool uses virtual threads, otherwise daemon platform threads.
+ *
+ * The pools are meant for tasks that finish. Loops that block for the lifetime
+ * of a service, like a watch or accept loop, would hold a pool thread forever
+ * and must run on their own thread started with
+ * {@link #startDaemon(String, Runnable)}. Pool tasks running longer than a
+ * minute are reported.
+ */
+public class BackgroundExecutor {
+
+	private static final int IO_QUEUE_CAPACITY = 1024;
+	private static final long KEEP_ALIVE_SECONDS = 30;
+	private static final long LONG_TASK_SECONDS = 60;
+
+	private final Pool io;
+	private final List<Pool> pools = new CopyOnWriteArrayList<>();
+	private final List<Thread> daemons = new CopyOnWriteArrayList<>();
+
+	/**
+	 * The usage of a pool
+	 *
+	 * @param name      the name of the pool
+	 * @param active    the number of threads running a task
+	 * @param threads   the current number of threads
+	 * @param peak      the largest number of threads there ever were
+	 * @param queued    the number of tasks waiting for a thread
+	 * @param submitted the number of tasks submitted
+	 * @param completed the number of tasks completed
+	 * @param rejected  the number of tasks rejected because the queue was full
+	 * @param failed    the number of tasks that threw an exception
+	 */
+	public record Statistics(String name, int active, int threads, int peak, int queued, long submitted,
+			long completed, long rejected, long failed) {
+
+		@Override
+		public String toString() {
+			return name + "[active=" + active + ", threads=" + threads + ", peak=" + peak + ", queued=" + queued
+					+ ", submitted=" + submitted + ", completed=" + completed + ", rejected=" + rejected
+					+ ", failed=" + failed + "]";
+		}
+	}
+
+	public BackgroundExecutor() {
+		ThreadFactory virtualThreads = virtualThreadFactory("copilot-io-");
+		if (virtualThreads != null) {
+			io = new Pool("io", 64, IO_QUEUE_CAPACITY, virtualThreads);
+		} else {
+			io = new Pool("io", 16, IO_QUEUE_CAPACITY, platformThreadFactory("copilot-io-"));
+		}
+	}
+
+	/**
+	 * @return the executor for blocking I/O work
+	 */
+	public Executor io() {
+		return io;
+	}
+
+	/**
+	 * Creates a pool of platform threads for a service. The owner shuts it down
+	 * when the service stops, at the latest it is shut down with
+	 * {@link #shutdown()}.
+	 *
+	 * @param name          the name of the pool and its threads
+	 * @param threads       the maximum number of threads
+	 * @param queueCapacity the number of tasks that may wait for a thread, more
+	 *                      are rejected
+	 * @return the new pool
+	 */
+	public ExecutorService newPool(String name, int threads, int queueCapacity) {
+		Pool pool = new Pool(name, threads, queueCapacity, platformThreadFactory("copilot-" + name + "-"));
+		pools.add(pool);
+		return pool;
+	}
+
+	/**
+	 * @return the current usage of the I/O pool and all running service pools
+	 */
+	public List<Statistics> getStatistics() {
+		pools.removeIf(Pool::isShutdown);
+		List<Statistics> statistics = new ArrayList<>();
+		statistics.add(io.statistics());
+		pools.forEach(pool -> statistics.add(pool.statistics()));
+		return statistics;
+	}
+
+	/**
+	 * Starts a loop that blocks for the lifetime of a service on its own daemon
+	 * thread. The owner ends the loop, for example by closing the resource it
+	 * blocks on, the thread is interrupted on {@link #shutdown()} at the latest.
+	 *
+	 * @return the started thread
+	 */
+	public Thread startDaemon(String name, Runnable loop) {
+		Thread thread = new Thread(() -> {
+			try {
+				loop.run();
+			} catch (RuntimeException e) {
+				ILog.get().error("Copilot CLI background loop " + name + " failed", e);
+			} finally {
+				daemons.remove(Thread.currentThread());
+			}
+		}, name);
+		thread.setDaemon(true);
+		daemons.add(thread);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Runs the given blocking supplier on the I/O pool.
+	 */
+	public <T> CompletableFuture<T> supplyIo(Supplier<T> supplier) {
+		return supply(supplier, io);
+	}
+
+	private static <T> CompletableFuture<T> supply(Supplier<T> supplier, Executor executor) {
+		try {
+			return CompletableFuture.supplyAsync(supplier, executor);
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Stops accepting new work and waits a short time for running tasks.
+	 */
+	public void shutdown() {
+		daemons.forEach(Thread::interrupt);
+		io.shutdown();
+		pools.forEach(Pool::shutdown);
+		try {
+			boolean terminated = io.awaitTermination(2, TimeUnit.SECONDS);
+			for (Pool pool : pools) {
+				terminated &= pool.awaitTermination(1, TimeUnit.SECONDS);
+			}
+			if (!terminated) {
+				ILog.get().warn("Copilot CLI background tasks still running on shutdown: " + this);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		io.shutdownNow();
+		pools.forEach(Pool::shutdownNow);
+		pools.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(io.toString());
+		pools.forEach(pool -> builder.append(", ").append(pool));
+		return builder.append(", daemons=").append(daemons.size()).toString();
+	}
+
+	private static ThreadFactory platformThreadFactory(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * The bundle requires Java 17 so virtual threads are looked up reflectively
+	 */
+	private static ThreadFactory virtualThreadFactory(String prefix) {
+		try {
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A fixed upper bound pool that keeps metrics about its usage.
+	 */
+	private static final class Pool extends ThreadPoolExecutor {
+
+		private final String name;
+		private final AtomicLong submitted = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicLong failed = new AtomicLong();
+		private final ThreadLocal<Long> started = new ThreadLocal<>();
+
+		Pool(String name, int threads, int queueCapacity, ThreadFactory threadFactory) {
+			super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+					threadFactory);
+			this.name = name;
+			allowCoreThreadTimeOut(true);
+			setRejectedExecutionHandler((runnable, executor) -> {
+				rejected.incrementAndGet();
+				throw new RejectedExecutionException("Copilot CLI " + name + " queue is full (" + this + ")");
+			});
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			submitted.incrementAndGet();
+			super.execute(command);
+		}
+
+		@Override
+		protected void beforeExecute(Thread t, Runnable r) {
+			super.beforeExecute(t, r);
+			started.set(System.nanoTime());
+		}
+
+		@Override
+		protected void afterExecute(Runnable r, Throwable t) {
+			super.afterExecute(r, t);
+			Long start = started.get();
+			started.remove();
+			if (start != null && System.nanoTime() - start > TimeUnit.SECONDS.toNanos(LONG_TASK_SECONDS)) {
+				ILog.get().warn("Copilot CLI " + name + " task ran for more than " + LONG_TASK_SECONDS
+						+ " seconds, long running loops need their own thread: " + r);
+			}
+			if (t != null) {
+				failed.incrementAndGet();
+				ILog.get().error("Copilot CLI background task failed", t);
+			}
+		}
+
+		Statistics statistics() {
+			return new Statistics(name, getActiveCount(), getPoolSize(), getLargestPoolSize(), getQueue().size(),
+					submitted.get(), getCompletedTaskCount(), rejected.get(), failed.get());
+		}
+
+		@Override
+		public String toString() {
+			return statistics().toString();
+		}
+	}
+}
@@ -0,0 +1,472 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Watches the display thread while plug-in code runs on it.
+ *
+ * Entry points such as command handlers wrap their work in
+ * {@link #enter(String)} or {@link #run(String, Runnable)}. While any entry
+ * point is active a sampler thread takes stack traces of the display thread. A
+ * run of samples that are not idle in {@link Display#sleep()} is a stall.
+ * Stalls above the threshold are aggregated per entry point, so nested event
+ * loops like modal dialogs are not counted as blocking time.
+ *
+ * The watchdog is off unless the {@value #ENABLED_PROPERTY} system property or
+ * the {@value #DEBUG_OPTION} debug option is set. Tests set the
+ * {@value #BUDGET_PROPERTY} system property to a number of milliseconds, which
+ * enables the watchdog and records every entry point blocking the display
+ * thread for longer as a violation, see {@link #getViolations()}.
+ */
+public class UiWatchdog {
+
+	/**
+	 * System property to enable the watchdog
+	 */
+	public static final String ENABLED_PROPERTY = "copilot.cli.watchdog";
+
+	/**
+	 * Debug option to enable the watchdog
+	 */
+	public static final String DEBUG_OPTION = Activator.PLUGIN_ID + "/debug/watchdog";
+
+	/**
+	 * System property for the minimum stall in milliseconds to record,
+	 * defaults to 100
+	 */
+	public static final String THRESHOLD_PROPERTY = "copilot.cli.watchdog.threshold";
+
+	/**
+	 * System property for the maximum stall in milliseconds an entry point may
+	 * cause before it is recorded as a violation, used by test runs
+	 */
+	public static final String BUDGET_PROPERTY = "copilot.cli.watchdog.budget";
+
+	private static final long SAMPLE_INTERVAL_MS = 25;
+
+	private static final int MAX_DEPTH = 24;
+
+	private static final int MAX_SAMPLES = 400;
+
+	private static final int MAX_STACKS = 32;
+
+	private static final Scope NONE = () -> {
+	};
+
+	private final boolean enabled;
+
+	private final long thresholdNanos;
+
+	private final long budgetNanos;
+
+	private final List<ActiveScope> active = new ArrayList<>();
+
+	private final Map<String, EntryStatistics> statistics = new LinkedHashMap<>();
+
+	private final List<String> violations = new ArrayList<>();
+
+	private Thread sampler;
+
+	private boolean disposed;
+
+	/**
+	 * The scope of an entry point, closing it ends the watch
+	 */
+	public interface Scope extends AutoCloseable {
+
+		@Override
+		void close();
+	}
+
+	/**
+	 * Creates a watchdog configured by the system properties and debug options
+	 */
+	public UiWatchdog() {
+		this(Boolean.getBoolean(ENABLED_PROPERTY) || Boolean.parseBoolean(Platform.getDebugOption(DEBUG_OPTION)),
+				Long.getLong(THRESHOLD_PROPERTY, 100), Long.getLong(BUDGET_PROPERTY, 0));
+	}
+
+	UiWatchdog(boolean enabled, long thresholdMillis, long budgetMillis) {
+		this.enabled = enabled || budgetMillis > 0;
+		budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+		thresholdNanos = TimeUnit.MILLISECONDS
+				.toNanos(budgetMillis > 0 ? Math.min(budgetMillis, thresholdMillis) : thresholdMillis);
+	}
+
+	/**
+	 * Starts watching the display thread for the given entry point of the
+	 * plug-in. Calls from other threads can't block the display and are not
+	 * watched.
+	 */
+	public static Scope enter(String entryPoint) {
+		Activator activator = Activator.getDefault();
+		if (activator == null || Display.getCurrent() == null) {
+			return NONE;
+		}
+		return activator.getWatchdog().begin(entryPoint);
+	}
+
+	/**
+	 * Runs the given entry point of the plug-in inside a scope
+	 */
+	public static void run(String entryPoint, Runnable runnable) {
+		try (Scope scope = enter(entryPoint)) {
+			runnable.run();
+		}
+	}
+
+	/**
+	 * Computes a result in the given entry point of the plug-in inside a scope
+	 */
+	public static <T> T call(String entryPoint, Supplier<T> supplier) {
+		try (Scope scope = enter(entryPoint)) {
+			return supplier.get();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if entry points are watched
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	Scope begin(String entryPoint) {
+		if (!enabled) {
+			return NONE;
+		}
+		ActiveScope scope = new ActiveScope(entryPoint, Thread.currentThread(), System.nanoTime());
+		synchronized (active) {
+			if (disposed) {
+				return NONE;
+			}
+			active.add(scope);
+			if (sampler == null) {
+				sampler = new Thread(this::sample, "copilot-ui-watchdog");
+				sampler.setDaemon(true);
+				sampler.start();
+			}
+			active.notifyAll();
+		}
+		return scope;
+	}
+
+	private void sample() {
+		try {
+			while (true) {
+				synchronized (active) {
+					while (active.isEmpty() && !disposed) {
+						active.wait();
+					}
+					if (disposed) {
+						return;
+					}
+				}
+				Thread.sleep(SAMPLE_INTERVAL_MS);
+				List<ActiveScope> scopes;
+				synchronized (active) {
+					scopes = new ArrayList<>(active);
+				}
+				// nested scopes share the thread, take each stack only once
+				Map<Thread, StackTraceElement[]> stacks = new HashMap<>();
+				long now = System.nanoTime();
+				for (ActiveScope scope : scopes) {
+					scope.sample(stacks.computeIfAbsent(scope.thread, Thread::getStackTrace), now);
+				}
+			}
+		} catch (InterruptedException e) {
+			// disposed
+		}
+	}
+
+	private void end(ActiveScope scope) {
+		synchronized (active) {
+			active.remove(scope);
+		}
+		List<Stall> stalls = scope.finish(System.nanoTime());
+		EntryStatistics entry;
+		synchronized (statistics) {
+			entry = statistics.computeIfAbsent(scope.entryPoint, EntryStatistics::new);
+		}
+		long previousMax = entry.getMaxStallMillis();
+		entry.record(stalls);
+		Stall longest = stalls.stream().max(Comparator.comparingLong(Stall::nanos)).orElse(null);
+		if (longest == null) {
+			return;
+		}
+		if (budgetNanos > 0 && longest.nanos() > budgetNanos) {
+			// thrown errors would end up in the event loop's log, tests check the violations
+			String violation = scope.entryPoint + " blocked the display thread for "
+					+ TimeUnit.NANOSECONDS.toMillis(longest.nanos()) + "ms, the budget is "
+					+ TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms";
+			synchronized (violations) {
+				violations.add(violation);
+			}
+			Exception stack = new Exception("Stack of the display thread while blocked");
+			stack.setStackTrace(longest.heaviestStack());
+			ILog.get().error(violation, stack);
+		} else if (TimeUnit.NANOSECONDS.toMillis(longest.nanos()) > previousMax) {
+			// only report new maximums, the statistics keep the rest
+			Exception stack = new Exception("Stack of the display thread while blocked");
+			stack.setStackTrace(longest.heaviestStack());
+			ILog.get().warn(scope.entryPoint + " blocked the display thread for "
+					+ TimeUnit.NANOSECONDS.toMillis(longest.nanos()) + "ms", stack);
+		}
+	}
+
+	/**
+	 * @return the statistics of all entry points entered so far
+	 */
+	public List<EntryStatistics> getStatistics() {
+		synchronized (statistics) {
+			return new ArrayList<>(statistics.values());
+		}
+	}
+
+	/**
+	 * @return the entry points that blocked the display thread longer than the
+	 *         budget, oldest first
+	 */
+	public List<String> getViolations() {
+		synchronized (violations) {
+			return new ArrayList<>(violations);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if any entry point stalled the display thread
+	 */
+	public boolean hasStalls() {
+		return getStatistics().stream().anyMatch(entry -> entry.getStalls() > 0);
+	}
+
+	/**
+	 * @return a human readable summary of the stalls per entry point with their
+	 *         most frequent stacks
+	 */
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		for (EntryStatistics entry : getStatistics()) {
+			entry.appendTo(report);
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Stops the sampler thread
+	 */
+	public void dispose() {
+		synchronized (active) {
+			disposed = true;
+			active.clear();
+			active.notifyAll();
+			if (sampler != null) {
+				sampler.interrupt();
+			}
+		}
+	}
+
+	private static boolean isIdle(StackTraceElement[] stack) {
+		for (StackTraceElement element : stack) {
+			if ("sleep".equals(element.getMethodName())
+					&& "org.eclipse.swt.widgets.Display".equals(element.getClassName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private record Stall(long nanos, List<StackTraceElement[]> samples) {
+
+		StackTraceElement[] heaviestStack() {
+			Map<String, Integer> counts = new HashMap<>();
+			StackTraceElement[] heaviest = new StackTraceElement[0];
+			int max = 0;
+			for (StackTraceElement[] sample : samples) {
+				int count = counts.merge(Arrays.toString(sample), 1, Integer::sum);
+				if (count > max) {
+					max = count;
+					heaviest = sample;
+				}
+			}
+			return heaviest;
+		}
+	}
+
+	private final class ActiveScope implements Scope {
+
+		private final String entryPoint;
+		private final Thread thread;
+		private final List<Stall> stalls = new ArrayList<>();
+		private List<StackTraceElement[]> samples = new ArrayList<>();
+		private long runStart;
+		private boolean idle;
+		private boolean closed;
+
+		ActiveScope(String entryPoint, Thread thread, long start) {
+			this.entryPoint = entryPoint;
+			this.thread = thread;
+			this.runStart = start;
+		}
+
+		synchronized void sample(StackTraceElement[] stack, long now) {
+			if (closed) {
+				return;
+			}
+			if (isIdle(stack)) {
+				if (!idle) {
+					endRun(now);
+					idle = true;
+				}
+				return;
+			}
+			if (idle) {
+				idle = false;
+				runStart = now;
+			}
+			if (samples.size() < MAX_SAMPLES) {
+				samples.add(stack.length > MAX_DEPTH ? Arrays.copyOf(stack, MAX_DEPTH) : stack);
+			}
+		}
+
+		synchronized List<Stall> finish(long now) {
+			closed = true;
+			if (!idle) {
+				endRun(now);
+			}
+			return stalls;
+		}
+
+		private void endRun(long now) {
+			long nanos = now - runStart;
+			if (nanos >= thresholdNanos) {
+				stalls.add(new Stall(nanos, samples));
+				samples = new ArrayList<>();
+			} else {
+				samples.clear();
+			}
+		}
+
+		@Override
+		public void close() {
+			end(this);
+		}
+	}
+
+	/**
+	 * Aggregated stalls of one entry point
+	 */
+	public static final class EntryStatistics {
+
+		private final String entryPoint;
+		private final Map<String, StackCount> stacks = new HashMap<>();
+		private long calls;
+		private long stalls;
+		private long totalNanos;
+		private long maxNanos;
+
+		private record StackCount(StackTraceElement[] stack, int[] samples) {
+		}
+
+		EntryStatistics(String entryPoint) {
+			this.entryPoint = entryPoint;
+		}
+
+		synchronized void record(List<Stall> newStalls) {
+			calls++;
+			for (Stall stall : newStalls) {
+				stalls++;
+				totalNanos += stall.nanos();
+				maxNanos = Math.max(maxNanos, stall.nanos());
+				for (StackTraceElement[] sample : stall.samples()) {
+					String key = Arrays.toString(sample);
+					StackCount count = stacks.get(key);
+					if (count == null) {
+						if (stacks.size() >= MAX_STACKS) {
+							continue;
+						}
+						count = new StackCount(sample, new int[1]);
+						stacks.put(key, count);
+					}
+					count.samples()[0]++;
+				}
+			}
+		}
+
+		/**
+		 * @return the name of the entry point
+		 */
+		public String getEntryPoint() {
+			return entryPoint;
+		}
+
+		/**
+		 * @return how often the entry point was entered on the display thread
+		 */
+		public synchronized long getCalls() {
+			return calls;
+		}
+
+		/**
+		 * @return the number of stalls above the threshold
+		 */
+		public synchronized long getStalls() {
+			return stalls;
+		}
+
+		/**
+		 * @return the longest stall in milliseconds
+		 */
+		public synchronized long getMaxStallMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+		}
+
+		/**
+		 * @return the sum of all stalls in milliseconds
+		 */
+		public synchronized long getTotalStallMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+		}
+
+		synchronized void appendTo(StringBuilder report) {
+			report.append(entryPoint).append(": calls=").append(calls).append(", stalls=").append(stalls)
+					.append(", total=").append(getTotalStallMillis()).append("ms, max=").append(getMaxStallMillis())
+					.append("ms\n");
+			stacks.values().stream().sorted(Comparator.comparingInt((StackCount count) -> -count.samples()[0]))
+					.limit(3).forEach(count -> {
+						report.append("\t").append(count.samples()[0]).append(" samples\n");
+						for (StackTraceElement element : count.stack()) {
+							report.append("\t\tat ").append(element).append('\n');
+						}
+					});
+		}
+
+		@Override
+		public synchronized String toString() {
+			return entryPoint + "[calls=" + calls + ", stalls=" + stalls + ", max=" + getMaxStallMillis() + "ms]";
+		}
+	}
+}
@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.cache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IPath;
+
+import io.github.laeubi.copilot.cli.connector.TextSource;
+
+/**
+ * Content addressed cache for the responses of repeated prompts.
+ *
+ * A {@link Key} is the SHA-256 hash of the prompt, the CLI arguments, the
+ * working directory and the content of every file the prompt references, so an
+ * entry can never be returned for changed code or another repository. Entries live in a memory tier bounded by size in
+ * LRU order, backed by a disk tier of one file per entry. Entries whose
+ * referenced files change in the workspace are dropped, so stale responses do
+ * not pile up on disk.
+ *
+ * All methods except {@link #resourceChanged(IResourceChangeEvent)} block on
+ * I/O and must not be called from the UI thread.
+ */
+public class ResponseCache implements IResourceChangeListener {
+
+	private static final long MAX_MEMORY_BYTES = 8 * 1024 * 1024;
+
+	private static final long MAX_DISK_BYTES = 64 * 1024 * 1024;
+
+	private static final String SUFFIX = ".txt";
+
+	private static final String FILE_HEADER = "file=";
+
+	/**
+	 * Matches the references created by the open prompt command
+	 * (<code>See path[Line 1-2]</code>) and file mentions
+	 * (<code>@path</code>)
+	 */
+	private static final Pattern FILE_REFERENCE = Pattern
+			.compile("See (\\S+?)\\[Line \\d+(?:-\\d+)?\\]|(?<![\\w@])@([\\w./\\\\-]+)");
+
+	private final Path directory;
+
+	private final Executor executor;
+
+	private final Map<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<Path, Set<String>> index = new HashMap<>();
+
+	private long memoryBytes;
+
+	private boolean indexed;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * The key of a cached response together with the files it depends on
+	 */
+	public record Key(String hash, Set<Path> files) {
+	}
+
+	private record Entry(String response, Set<Path> files) {
+
+		long size() {
+			return 2L * response.length();
+		}
+	}
+
+	/**
+	 * @param directory the directory of the disk tier
+	 * @param executor  the executor used for invalidation triggered by workspace
+	 *                  changes
+	 */
+	public ResponseCache(Path directory, Executor executor) {
+		this.directory = directory;
+		this.executor = executor;
+	}
+
+	/**
+	 * @return a builder to compute the key of a prompt
+	 */
+	public static KeyBuilder newKey() {
+		return new KeyBuilder();
+	}
+
+	/**
+	 * Looks up the response for the given key in memory and then on disk.
+	 */
+	public Optional<String> get(Key key) {
+		synchronized (this) {
+			Entry entry = memory.get(key.hash());
+			if (entry != null) {
+				hits.incrementAndGet();
+				return Optional.of(entry.response());
+			}
+		}
+		Entry entry = read(file(key.hash()));
+		if (entry == null) {
+			misses.incrementAndGet();
+			return Optional.empty();
+		}
+		hits.incrementAndGet();
+		synchronized (this) {
+			remember(key.hash(), entry);
+		}
+		return Optional.of(entry.response());
+	}
+
+	/**
+	 * Stores the response for the given key in both tiers.
+	 */
+	public void put(Key key, String response) {
+		Entry entry = new Entry(response, key.files());
+		synchronized (this) {
+			ensureIndexed();
+			remember(key.hash(), entry);
+			for (Path file : entry.files()) {
+				index.computeIfAbsent(file, f -> new LinkedHashSet<>()).add(key.hash());
+			}
+		}
+		try {
+			Files.createDirectories(directory);
+			Path target = file(key.hash());
+			Path temp = Files.createTempFile(directory, key.hash(), ".tmp");
+			try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				for (Path file : entry.files()) {
+					writer.write(FILE_HEADER + file + "\n");
+				}
+				writer.write("\n");
+				writer.write(response);
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			trimDisk();
+		} catch (IOException e) {
+			ILog.get().warn("Can't store Copilot response in " + directory, e);
+		}
+	}
+
+	/**
+	 * Drops all entries that depend on the given file.
+	 */
+	public void invalidate(Path file) {
+		Set<String> keys;
+		synchronized (this) {
+			ensureIndexed();
+			keys = index.remove(file);
+			if (keys == null) {
+				return;
+			}
+			for (String key : keys) {
+				Entry entry = memory.remove(key);
+				if (entry != null) {
+					memoryBytes -= entry.size();
+				}
+			}
+		}
+		for (String key : keys) {
+			try {
+				Files.deleteIfExists(file(key));
+			} catch (IOException e) {
+				// dropped with the next trim then
+			}
+		}
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		List<Path> changed = new ArrayList<>();
+		try {
+			delta.accept(child -> {
+				if (child.getResource().getType() == IResource.FILE && (child.getKind() == IResourceDelta.REMOVED
+						|| (child.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)) {
+					IPath location = child.getResource().getLocation();
+					if (location != null) {
+						changed.add(normalize(location.toPath()));
+					}
+				}
+				return true;
+			});
+		} catch (CoreException e) {
+			ILog.get().error("Can't process workspace changes for the Copilot response cache", e);
+		}
+		if (!changed.isEmpty()) {
+			executor.execute(() -> changed.forEach(this::invalidate));
+		}
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups not found in the cache
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return a human readable summary of the hit rate
+	 */
+	public String getStatistics() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return String.format("%d of %d lookups answered from cache (%d%%)", hitCount, total,
+				total == 0 ? 0 : Math.round(100.0 * hitCount / total));
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getStatistics() + ", " + memory.size() + " entries in memory (" + memoryBytes / 1024 + " KiB)";
+	}
+
+	private void remember(String key, Entry entry) {
+		Entry previous = memory.put(key, entry);
+		if (previous != null) {
+			memoryBytes -= previous.size();
+		}
+		memoryBytes += entry.size();
+		Iterator<Entry> iterator = memory.values().iterator();
+		while (memoryBytes > MAX_MEMORY_BYTES && iterator.hasNext()) {
+			memoryBytes -= iterator.next().size();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Reads the referenced files of all entries on disk once, so entries stored
+	 * in a previous session are invalidated as well
+	 */
+	private void ensureIndexed() {
+		if (indexed) {
+			return;
+		}
+		indexed = true;
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				String key = name.substring(0, name.length() - SUFFIX.length());
+				try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+					String line;
+					while ((line = reader.readLine()) != null && line.startsWith(FILE_HEADER)) {
+						index.computeIfAbsent(toPath(line), f -> new LinkedHashSet<>()).add(key);
+					}
+				}
+			}
+		} catch (IOException | InvalidPathException e) {
+			ILog.get().warn("Can't read the Copilot response cache in " + directory, e);
+		}
+	}
+
+	private void trimDisk() throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			stream.forEach(files::add);
+		}
+		long total = 0;
+		Map<Path, Long> modified = new HashMap<>();
+		for (Path path : files) {
+			total += Files.size(path);
+			modified.put(path, Files.getLastModifiedTime(path).toMillis());
+		}
+		files.sort(Comparator.comparing(modified::get));
+		for (Iterator<Path> iterator = files.iterator(); total > MAX_DISK_BYTES && iterator.hasNext();) {
+			Path oldest = iterator.next();
+			total -= Files.size(oldest);
+			Files.deleteIfExists(oldest);
+		}
+	}
+
+	private Entry read(Path path) {
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			Set<Path> files = new LinkedHashSet<>();
+			String line;
+			while ((line = reader.readLine()) != null && line.startsWith(FILE_HEADER)) {
+				files.add(toPath(line));
+			}
+			StringBuilder response = new StringBuilder();
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) > 0) {
+				response.append(buffer, 0, read);
+			}
+			return new Entry(response.toString(), files);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | InvalidPathException e) {
+			ILog.get().warn("Can't read cached Copilot response " + path, e);
+			return null;
+		}
+	}
+
+	private Path file(String key) {
+		return directory.resolve(key + SUFFIX);
+	}
+
+	private static Path toPath(String headerLine) {
+		return Path.of(headerLine.substring(FILE_HEADER.length()));
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Computes the {@link Key} of a prompt by streaming everything that
+	 * influences the response into a SHA-256 digest.
+	 */
+	public static final class KeyBuilder {
+
+		private static final int CHUNK_SIZE = 8192;
+
+		private final MessageDigest digest;
+
+		private final Set<Path> files = new LinkedHashSet<>();
+
+		KeyBuilder() {
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				// every Java runtime has to provide SHA-256
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Adds the given text, <code>null</code> is distinct from an empty text
+		 */
+		public KeyBuilder add(String text) {
+			if (text == null) {
+				digest.update((byte) 0);
+			} else {
+				byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+				digest.update((byte) 1);
+				digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+				digest.update(bytes);
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the given text chunk by chunk, <code>null</code> is distinct from an
+		 * empty text
+		 */
+		public KeyBuilder add(TextSource text) throws IOException {
+			if (text == null) {
+				digest.update((byte) 0);
+				return this;
+			}
+			int length = text.length();
+			digest.update((byte) 2);
+			digest.update(Integer.toString(length).getBytes(StandardCharsets.US_ASCII));
+			byte[] buffer = new byte[CHUNK_SIZE * 2];
+			for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+				CharSequence chunk = text.read(offset, Math.min(CHUNK_SIZE, length - offset));
+				int n = 0;
+				for (int i = 0; i < chunk.length(); i++) {
+					char c = chunk.charAt(i);
+					buffer[n++] = (byte) (c >> 8);
+					buffer[n++] = (byte) c;
+				}
+				digest.update(buffer, 0, n);
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the path and content of a file the response depends on
+		 */
+		public KeyBuilder addFile(Path file) throws IOException {
+			Path path = normalize(file);
+			files.add(path);
+			add(path.toString());
+			byte[] buffer = new byte[CHUNK_SIZE];
+			try (InputStream stream = Files.newInputStream(path)) {
+				int read;
+				while ((read = stream.read(buffer)) > 0) {
+					digest.update(buffer, 0, read);
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the working directory and every existing file referenced in the
+		 * prompt, relative paths are resolved against the working directory
+		 */
+		public KeyBuilder addReferencedFiles(String prompt, Path workingDir) throws IOException {
+			add(normalize(workingDir).toString());
+			if (prompt == null) {
+				return this;
+			}
+			Matcher matcher = FILE_REFERENCE.matcher(prompt);
+			while (matcher.find()) {
+				String reference = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+				try {
+					Path file = workingDir.resolve(reference);
+					if (Files.isRegularFile(file)) {
+						addFile(file);
+					}
+				} catch (InvalidPathException e) {
+					// not a file then
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * @return <code>true</code> if any file was added, a response that does
+		 *         not depend on a file can not be told apart from one about
+		 *         content that changed since
+		 */
+		public boolean hasFiles() {
+			return !files.isEmpty();
+		}
+
+		/**
+		 * @return the key for everything added so far
+		 */
+		public Key build() {
+			return new Key(HexFormat.of().formatHex(digest.digest()), Set.copyOf(files));
+		}
+	}
+}
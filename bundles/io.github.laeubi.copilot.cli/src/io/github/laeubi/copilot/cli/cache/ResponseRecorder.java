@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.laeubi.copilot.cli.connector.TerminalOutputListener;
+
+/**
+ * Records the output of a Copilot session while it answers a prompt.
+ *
+ * The CLI renders its answer as a terminal UI that redraws lines in place, so
+ * the output is applied to a minimal model of the screen lines, interpreting
+ * carriage returns, backspaces, cursor movement and erasing. What remains is
+ * the text as it was finally shown, all other control sequences are dropped.
+ * Responses exceeding a maximum size are not recorded at all.
+ */
+public class ResponseRecorder implements TerminalOutputListener {
+
+	private static final int MAX_CHARS = 1024 * 1024;
+
+	private static final int MAX_ESCAPE_CHARS = 256;
+
+	private static final char ESC = '\u001b';
+
+	private static final char BEL = '\u0007';
+
+	private final List<StringBuilder> lines = new ArrayList<>();
+
+	/**
+	 * An escape sequence that is not complete yet, it might continue in the next
+	 * chunk
+	 */
+	private final StringBuilder escape = new StringBuilder();
+
+	private int row;
+
+	private int column;
+
+	private int received;
+
+	private boolean overflow;
+
+	public ResponseRecorder() {
+		lines.add(new StringBuilder());
+	}
+
+	@Override
+	public synchronized void outputReceived(CharSequence text) {
+		if (overflow) {
+			return;
+		}
+		received += text.length();
+		if (received > MAX_CHARS) {
+			overflow = true;
+			lines.clear();
+			return;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (escape.length() > 0 || c == ESC) {
+				escape.append(c);
+				if (isComplete(escape)) {
+					apply(escape);
+					escape.setLength(0);
+				} else if (escape.length() > MAX_ESCAPE_CHARS) {
+					// not a sequence we understand
+					escape.setLength(0);
+				}
+				continue;
+			}
+			switch (c) {
+			case '\r':
+				column = 0;
+				break;
+			case '\n':
+				moveTo(row + 1);
+				column = 0;
+				break;
+			case '\b':
+				column = Math.max(0, column - 1);
+				break;
+			case '\t':
+				column = (column / 8 + 1) * 8;
+				break;
+			default:
+				if (c >= ' ') {
+					put(c);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the recorded output as plain text, or <code>null</code> if nothing
+	 *         usable was recorded
+	 */
+	public synchronized String getResponse() {
+		if (overflow) {
+			return null;
+		}
+		StringBuilder text = new StringBuilder();
+		for (StringBuilder line : lines) {
+			text.append(line.toString().stripTrailing()).append('\n');
+		}
+		String response = text.toString().strip();
+		return response.isEmpty() ? null : response;
+	}
+
+	private static boolean isComplete(CharSequence sequence) {
+		int length = sequence.length();
+		if (length < 2) {
+			return false;
+		}
+		char type = sequence.charAt(1);
+		char last = sequence.charAt(length - 1);
+		if (type == '[') {
+			// CSI, parameters and intermediates up to the final byte
+			return length > 2 && last >= '@' && last <= '~';
+		}
+		if (type == ']') {
+			// OSC, terminated by BEL or ST
+			return last == BEL || (length > 3 && last == '\\' && sequence.charAt(length - 2) == ESC);
+		}
+		if (type == '(' || type == ')') {
+			// character set designation
+			return length > 2;
+		}
+		return true;
+	}
+
+	private void apply(CharSequence sequence) {
+		if (sequence.length() < 3 || sequence.charAt(1) != '[') {
+			return;
+		}
+		char command = sequence.charAt(sequence.length() - 1);
+		String parameters = sequence.subSequence(2, sequence.length() - 1).toString();
+		if (!parameters.isEmpty() && !Character.isDigit(parameters.charAt(0)) && parameters.charAt(0) != ';') {
+			// private modes like ?25l do not change the text
+			return;
+		}
+		int first = parameter(parameters, 0);
+		switch (command) {
+		case 'A':
+			moveTo(row - Math.max(1, first));
+			break;
+		case 'B':
+			moveTo(row + Math.max(1, first));
+			break;
+		case 'C':
+			column += Math.max(1, first);
+			break;
+		case 'D':
+			column = Math.max(0, column - Math.max(1, first));
+			break;
+		case 'E':
+			moveTo(row + Math.max(1, first));
+			column = 0;
+			break;
+		case 'F':
+			moveTo(row - Math.max(1, first));
+			column = 0;
+			break;
+		case 'G':
+			column = Math.max(1, first) - 1;
+			break;
+		case 'K':
+			eraseLine(first);
+			break;
+		case 'J':
+			eraseScreen(first);
+			break;
+		default:
+			// colors and everything else do not change the text
+		}
+	}
+
+	private static int parameter(String parameters, int index) {
+		String[] values = parameters.split(";", -1);
+		if (index >= values.length || values[index].isEmpty()) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(values[index]);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private void put(char c) {
+		StringBuilder line = lines.get(row);
+		while (line.length() < column) {
+			line.append(' ');
+		}
+		if (column < line.length()) {
+			line.setCharAt(column, c);
+		} else {
+			line.append(c);
+		}
+		column++;
+	}
+
+	/**
+	 * Moves the cursor to the given line, the recorded output is the whole
+	 * screen so it can not move above the first line
+	 */
+	private void moveTo(int newRow) {
+		row = Math.max(0, newRow);
+		while (lines.size() <= row) {
+			lines.add(new StringBuilder());
+		}
+	}
+
+	private void eraseLine(int mode) {
+		StringBuilder line = lines.get(row);
+		switch (mode) {
+		case 0:
+			if (column < line.length()) {
+				line.setLength(column);
+			}
+			break;
+		case 1:
+			for (int i = 0; i < Math.min(column + 1, line.length()); i++) {
+				line.setCharAt(i, ' ');
+			}
+			break;
+		default:
+			line.setLength(0);
+		}
+	}
+
+	private void eraseScreen(int mode) {
+		if (mode == 0) {
+			eraseLine(0);
+			for (int i = row + 1; i < lines.size(); i++) {
+				lines.get(i).setLength(0);
+			}
+		} else if (mode == 1) {
+			for (int i = 0; i < row; i++) {
+				lines.get(i).setLength(0);
+			}
+			eraseLine(1);
+		} else {
+			lines.forEach(line -> line.setLength(0));
+		}
+	}
+}
@@ -11,21 +11,175 @@
  *******************************************************************************/
 package io.github.laeubi.copilot.cli.connector;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
 import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.terminal.connector.ISettingsPage;
+import org.eclipse.terminal.connector.ISettingsStore;
+import org.eclipse.terminal.connector.ITerminalControl;
+import org.eclipse.terminal.connector.TerminalState;
 import org.eclipse.terminal.connector.process.ProcessConnector;
 import org.eclipse.terminal.connector.process.ProcessSettings;
+import org.eclipse.terminal.view.core.ITerminalServiceOutputStreamMonitorListener;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.UiWatchdog;
 
 /**
  * Copilot CLI terminal connector implementation.
  * 
  * This connector extends ProcessConnector to provide a terminal interface
- * for GitHub Copilot CLI.
+ * for GitHub Copilot CLI. The spawned process and PTY are registered with the
+ * {@link ProcessResourceTracker} so the whole process tree is torn down on
+ * disconnect. Restored sessions are connected deferred: the tab shows a
+ * placeholder and the process is only spawned when the session is used.
  */
 public class CopilotCliConnector extends ProcessConnector implements IAdaptable {
 
+	/**
+	 * Settings key for the terminal title of the session
+	 */
+	public static final String KEY_TITLE = "CopilotCli.Title";
+
+	/**
+	 * Settings key for the user supplied copilot arguments
+	 */
+	public static final String KEY_ARGUMENTS = "CopilotCli.Arguments";
+
+	/**
+	 * Settings key for the id of the copilot session to resume
+	 */
+	public static final String KEY_RESUME_ID = "CopilotCli.ResumeId";
+
+	/**
+	 * Settings key to only spawn the process once the session is used
+	 */
+	public static final String KEY_DEFERRED = "CopilotCli.Deferred";
+
+	private static final byte ESC = 0x1b;
+
+	private static final byte CTRL_C = 0x03;
+
+	private static final String ERASE_LINE = "\u001b[2K";
+
+	private static final Pattern ESCAPE_SEQUENCE = Pattern
+			.compile("\u001b(?:\\[[0-?]*[ -/]*[@-~]|\\][^\u0007\u001b]*(?:\u0007|\u001b\\\\)?|.)");
+
+	/**
+	 * The questions of the CLI and the way to decline them
+	 */
+	private static final Pattern CONFIRMATION = Pattern.compile("Do you (?:want|trust)\\b[^\\n]*\\?|\\(Esc\\)");
+
 	private final ProcessSettings settings;
 
+	private final TerminalOutputMonitor outputMonitor = new TerminalOutputMonitor();
+
+	private volatile ITerminalControl control;
+
+	private TerminalInputWriter inputWriter;
+
+	private String title;
+
+	private String arguments;
+
+	private String resumeId;
+
+	private boolean deferred;
+
+	private volatile boolean started;
+
+	/**
+	 * Input typed before the process of a restored session was spawned, guarded
+	 * by itself
+	 */
+	private final ByteArrayOutputStream pendingInput = new ByteArrayOutputStream();
+
+	private boolean pendingInputReplayed;
+
+	/**
+	 * Stands in for the process input of a restored session, the first key
+	 * typed spawns the process and is replayed once it runs
+	 */
+	private final OutputStream placeholderInput = new OutputStream() {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			boolean buffered;
+			synchronized (pendingInput) {
+				buffered = !pendingInputReplayed;
+				typed(b, off, len);
+				if (buffered) {
+					pendingInput.write(b, off, len);
+				} else {
+					OutputStream stream = CopilotCliConnector.super.getTerminalToRemoteStream();
+					if (stream != null) {
+						stream.write(b, off, len);
+					}
+				}
+			}
+			if (buffered) {
+				ensureStarted();
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			OutputStream stream = started ? CopilotCliConnector.super.getTerminalToRemoteStream() : null;
+			if (stream != null) {
+				stream.flush();
+			}
+		}
+	};
+
+	/**
+	 * Whether the user typed into the input line and has not submitted it yet
+	 */
+	private volatile boolean typing;
+
+	/**
+	 * Forwards the keys typed into a running session and notices when the user
+	 * leaves text in the input line
+	 */
+	private final OutputStream userInput = new OutputStream() {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			OutputStream stream = CopilotCliConnector.super.getTerminalToRemoteStream();
+			if (stream == null) {
+				throw new IOException("Copilot CLI terminal is not connected");
+			}
+			stream.write(b, off, len);
+			typed(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			OutputStream stream = CopilotCliConnector.super.getTerminalToRemoteStream();
+			if (stream != null) {
+				stream.flush();
+			}
+		}
+	};
+
 	/**
 	 * Constructor.
 	 */
@@ -43,6 +197,285 @@ public class CopilotCliConnector extends ProcessConnector implements IAdaptable
 		settings.setImage("copilot");
 	}
 
+	@Override
+	public void connect(ITerminalControl control) {
+		UiWatchdog.run("CopilotCliConnector.connect", () -> doConnect(control));
+	}
+
+	private void doConnect(ITerminalControl control) {
+		this.control = control;
+		ITerminalServiceOutputStreamMonitorListener[] listeners = settings.getStdOutListeners();
+		if (listeners == null) {
+			settings.setStdOutListeners(new ITerminalServiceOutputStreamMonitorListener[] { outputMonitor });
+		} else if (!Arrays.asList(listeners).contains(outputMonitor)) {
+			listeners = Arrays.copyOf(listeners, listeners.length + 1);
+			listeners[listeners.length - 1] = outputMonitor;
+			settings.setStdOutListeners(listeners);
+		}
+		if (deferred && !started) {
+			// A restored session, only show a placeholder until it is used
+			control.setState(TerminalState.CONNECTED);
+			showPlaceholder(control);
+			Activator activator = Activator.getDefault();
+			if (activator != null) {
+				activator.getResourceTracker().register(this, null, null);
+			}
+			return;
+		}
+		start();
+	}
+
+	private void start() {
+		started = true;
+		super.connect(control);
+		outputMonitor.setCharset(getCharset());
+		Activator activator = Activator.getDefault();
+		if (activator != null) {
+			activator.getResourceTracker().register(this, getProcess(), getPty());
+		}
+		try {
+			replayPendingInput();
+		} catch (IOException e) {
+			// the process already went away, nothing to send it to
+		}
+	}
+
+	/**
+	 * Sends the input typed into the placeholder to the spawned process, from
+	 * now on the placeholder forwards all input directly
+	 */
+	private void replayPendingInput() throws IOException {
+		synchronized (pendingInput) {
+			OutputStream stream = super.getTerminalToRemoteStream();
+			if (pendingInputReplayed || stream == null) {
+				return;
+			}
+			pendingInputReplayed = true;
+			if (pendingInput.size() > 0) {
+				pendingInput.writeTo(stream);
+				pendingInput.reset();
+				stream.flush();
+			}
+		}
+	}
+
+	private void showPlaceholder(ITerminalControl terminalControl) {
+		String message = "Copilot CLI session in " + settings.getWorkingDir()
+				+ " restored, start typing to resume it.\r\n";
+		try {
+			terminalControl.getRemoteToTerminalOutputStream().write(message.getBytes(getCharset()));
+		} catch (IOException e) {
+			// nothing to show then
+		}
+	}
+
+	/**
+	 * Spawns the copilot process of a restored session if that has not happened
+	 * yet. Can be called from any thread.
+	 */
+	public void ensureStarted() {
+		if (started || control == null) {
+			return;
+		}
+		Display display = Display.getDefault();
+		if (display.getThread() == Thread.currentThread()) {
+			startDeferred();
+		} else if (!display.isDisposed()) {
+			display.syncExec(this::startDeferred);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the copilot process was spawned
+	 */
+	public boolean isStarted() {
+		return started;
+	}
+
+	private void startDeferred() {
+		// always called on the UI thread, so no further locking is needed
+		if (!started && control != null && control.getState() == TerminalState.CONNECTED) {
+			start();
+		}
+	}
+
+	@Override
+	public OutputStream getTerminalToRemoteStream() {
+		if (!started) {
+			return placeholderInput;
+		}
+		return super.getTerminalToRemoteStream() != null ? userInput : null;
+	}
+
+	@Override
+	public void load(ISettingsStore store) {
+		super.load(store);
+		title = store.get(KEY_TITLE);
+		arguments = store.get(KEY_ARGUMENTS);
+		resumeId = store.get(KEY_RESUME_ID);
+		deferred = Boolean.parseBoolean(store.get(KEY_DEFERRED));
+	}
+
+	@Override
+	protected void doDisconnect() {
+		// Kill the tree before the process itself is destroyed, otherwise the
+		// children get re-parented and can no longer be found
+		Activator activator = Activator.getDefault();
+		if (activator != null) {
+			activator.getResourceTracker().release(this);
+		}
+		super.doDisconnect();
+	}
+
+	/**
+	 * @return the working directory the copilot process was started in
+	 */
+	public String getWorkingDir() {
+		return settings.getWorkingDir();
+	}
+
+	/**
+	 * @return the terminal title of the session, might be <code>null</code>
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * @return the user supplied copilot arguments, might be <code>null</code>
+	 */
+	public String getArguments() {
+		return arguments;
+	}
+
+	/**
+	 * @return the id of the copilot session that was resumed, might be
+	 *         <code>null</code>
+	 */
+	public String getResumeId() {
+		return resumeId;
+	}
+
+	/**
+	 * @return the charset used to talk to the copilot process
+	 */
+	public Charset getCharset() {
+		ITerminalControl terminalControl = control;
+		Charset charset = terminalControl != null ? terminalControl.getCharset() : null;
+		return charset != null ? charset : StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Returns a writer to send input to the copilot process. The writer is
+	 * reused as long as the process stream and charset do not change.
+	 *
+	 * @throws IOException if the connector is not connected
+	 */
+	public TerminalInputWriter getInputWriter() throws IOException {
+		// might sync with the display thread, so never while holding the monitor
+		ensureStarted();
+		synchronized (this) {
+			// bypass the user input, what the plug-in writes is never a submit by the user
+			OutputStream stream = started ? super.getTerminalToRemoteStream() : placeholderInput;
+			if (stream == null) {
+				throw new IOException("Copilot CLI terminal is not connected");
+			}
+			Charset charset = getCharset();
+			if (inputWriter == null || !inputWriter.isFor(stream, charset)) {
+				inputWriter = new TerminalInputWriter(stream, charset);
+			}
+			return inputWriter;
+		}
+	}
+
+	/**
+	 * Shows the given text in the terminal without sending it to the copilot
+	 * process.
+	 *
+	 * @throws IOException if the connector is not connected
+	 */
+	public void display(String text) throws IOException {
+		ITerminalControl terminalControl = control;
+		if (terminalControl == null) {
+			throw new IOException("Copilot CLI terminal is not connected");
+		}
+		OutputStream stream = terminalControl.getRemoteToTerminalOutputStream();
+		stream.write(text.replace("\r\n", "\n").replace("\n", "\r\n").getBytes(getCharset()));
+		stream.flush();
+	}
+
+	/**
+	 * Adds a listener for the decoded output of the copilot process
+	 */
+	public void addOutputListener(TerminalOutputListener listener) {
+		outputMonitor.addListener(listener);
+	}
+
+	/**
+	 * Removes a previously added output listener
+	 */
+	public void removeOutputListener(TerminalOutputListener listener) {
+		outputMonitor.removeListener(listener);
+	}
+
+	/**
+	 * Returns a future that completes once the CLI has started up and is
+	 * waiting for input, that is it has written output and then stayed quiet
+	 * for the given time.
+	 */
+	public CompletableFuture<Void> awaitQuiet(long quietMillis, Executor executor) {
+		ensureStarted();
+		return outputMonitor.awaitQuiet(quietMillis, executor);
+	}
+
+	/**
+	 * @return <code>true</code> if the user typed into the input line of the
+	 *         CLI and has not submitted or cancelled it yet
+	 */
+	public boolean hasPendingInput() {
+		return typing;
+	}
+
+	/**
+	 * @return <code>true</code> if the CLI currently asks the user to confirm
+	 *         something, for example a command to run or a folder to trust,
+	 *         so any text sent to it would answer the question
+	 */
+	public boolean isConfirming() {
+		String tail = outputMonitor.getTail();
+		// the CLI erases its prompt area before drawing it again, only the
+		// last drawing is still on the screen
+		int erase = tail.lastIndexOf(ERASE_LINE);
+		String screen = ESCAPE_SEQUENCE.matcher(erase >= 0 ? tail.substring(erase) : tail).replaceAll("");
+		return CONFIRMATION.matcher(screen).find();
+	}
+
+	/**
+	 * @return <code>true</code> if the CLI has not written any output for at
+	 *         least the given time, that is the agent is not working on a task
+	 */
+	public boolean isQuiet(long quietMillis) {
+		return outputMonitor.isQuiet(quietMillis);
+	}
+
+	/**
+	 * Notices if the given keys leave text in the input line, escape sequences
+	 * like cursor keys do not change it and keys answering a question of the
+	 * CLI do not go to the input line
+	 */
+	private void typed(byte[] b, int off, int len) {
+		if (len == 0 || b[off] == ESC) {
+			return;
+		}
+		int end = off + len;
+		int last = end - 1;
+		// enter submits the line and Ctrl+C clears it
+		while (last >= off && b[last] != '\r' && b[last] != CTRL_C) {
+			last--;
+		}
+		typing = last < end - 1 && !isConfirming();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T getAdapter(Class<T> adapter) {
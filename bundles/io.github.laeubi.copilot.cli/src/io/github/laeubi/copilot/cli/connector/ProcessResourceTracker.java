@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.cdt.utils.pty.PTY;
+import org.eclipse.core.runtime.ILog;
+
+/**
+ * Keeps track of every process and PTY spawned for a {@link CopilotCliConnector}.
+ *
+ * The copilot CLI is a Node application that forks its own children, so
+ * destroying only the direct child leaves orphans behind. The tracker therefore
+ * kills the whole process tree when a connector disconnects and when the plugin
+ * stops, and exposes live counts so leaks become visible.
+ */
+public class ProcessResourceTracker {
+
+	private static final long TERMINATE_TIMEOUT_MS = 2000;
+
+	private final Map<CopilotCliConnector, TrackedProcess> tracked = new LinkedHashMap<>();
+
+	private final Map<String, List<CompletableFuture<CopilotCliConnector>>> waiting = new HashMap<>();
+
+	private final List<SessionListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Gets notified when the copilot process of a session is spawned and when
+	 * the session is released again
+	 */
+	public interface SessionListener {
+
+		/**
+		 * Called after the copilot process of the connector was spawned
+		 */
+		void sessionStarted(CopilotCliConnector connector);
+
+		/**
+		 * Called after the resources of a started session were released
+		 */
+		void sessionEnded(CopilotCliConnector connector);
+	}
+
+	/**
+	 * Adds a listener to be notified about started and ended sessions
+	 */
+	public void addListener(SessionListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a previously added session listener
+	 */
+	public void removeListener(SessionListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Registers the process and PTY of a freshly connected connector. A
+	 * connector whose process is not spawned yet is registered without any.
+	 */
+	public void register(CopilotCliConnector connector, Process process, PTY pty) {
+		TrackedProcess previous;
+		List<CompletableFuture<CopilotCliConnector>> waiters;
+		synchronized (tracked) {
+			previous = tracked.put(connector, new TrackedProcess(process, toHandle(process), pty));
+			waiters = waiting.remove(key(connector.getWorkingDir()));
+		}
+		if (previous != null) {
+			previous.terminate(false);
+		}
+		if ((process != null || pty != null) && (previous == null || !previous.isStarted())) {
+			for (SessionListener listener : listeners) {
+				listener.sessionStarted(connector);
+			}
+		}
+		if (waiters != null) {
+			waiters.forEach(waiter -> waiter.complete(connector));
+		}
+	}
+
+	/**
+	 * Returns a future that completes with the connector started in the given
+	 * working directory, either an already connected one or the next one to
+	 * connect.
+	 */
+	public CompletableFuture<CopilotCliConnector> awaitConnector(String workingDir, long timeoutMillis) {
+		String key = key(workingDir);
+		CompletableFuture<CopilotCliConnector> future = new CompletableFuture<>();
+		synchronized (tracked) {
+			for (CopilotCliConnector connector : tracked.keySet()) {
+				if (key.equals(key(connector.getWorkingDir()))) {
+					future.complete(connector);
+					return future;
+				}
+			}
+			waiting.computeIfAbsent(key, k -> new ArrayList<>()).add(future);
+		}
+		return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((connector, error) -> {
+			if (error != null) {
+				synchronized (tracked) {
+					List<CompletableFuture<CopilotCliConnector>> waiters = waiting.get(key);
+					if (waiters != null && waiters.remove(future) && waiters.isEmpty()) {
+						waiting.remove(key);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Terminates the process tree and closes the PTY of the given connector.
+	 */
+	public void release(CopilotCliConnector connector) {
+		TrackedProcess resources;
+		synchronized (tracked) {
+			resources = tracked.remove(connector);
+		}
+		if (resources != null) {
+			resources.terminate(false);
+			if (resources.isStarted()) {
+				for (SessionListener listener : listeners) {
+					listener.sessionEnded(connector);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases all resources still held, reporting them as leaked.
+	 */
+	public void dispose() {
+		List<TrackedProcess> remaining;
+		synchronized (tracked) {
+			remaining = new ArrayList<>(tracked.values());
+			tracked.clear();
+		}
+		if (!remaining.isEmpty()) {
+			ILog.get().info("Terminating " + remaining.size() + " Copilot CLI session(s) still running on shutdown");
+		}
+		for (TrackedProcess resources : remaining) {
+			resources.terminate(true);
+		}
+	}
+
+	/**
+	 * @return the connectors currently holding resources, in connect order
+	 */
+	public List<CopilotCliConnector> getConnectors() {
+		synchronized (tracked) {
+			return new ArrayList<>(tracked.keySet());
+		}
+	}
+
+	/**
+	 * @return the number of connected sessions
+	 */
+	public int getSessionCount() {
+		synchronized (tracked) {
+			return tracked.size();
+		}
+	}
+
+	/**
+	 * @return the number of alive processes, including all descendants of the
+	 *         copilot processes
+	 */
+	public long getLiveProcessCount() {
+		return snapshot().stream().mapToLong(TrackedProcess::liveProcessCount).sum();
+	}
+
+	/**
+	 * @return the number of PTYs whose streams have not been closed yet
+	 */
+	public long getOpenPtyCount() {
+		return snapshot().stream().filter(TrackedProcess::hasOpenPty).count();
+	}
+
+	@Override
+	public String toString() {
+		return "sessions=" + getSessionCount() + ", processes=" + getLiveProcessCount() + ", ptys="
+				+ getOpenPtyCount();
+	}
+
+	private List<TrackedProcess> snapshot() {
+		synchronized (tracked) {
+			return new ArrayList<>(tracked.values());
+		}
+	}
+
+	private static String key(String workingDir) {
+		if (workingDir == null) {
+			return "";
+		}
+		try {
+			return Path.of(workingDir).toAbsolutePath().normalize().toString();
+		} catch (InvalidPathException e) {
+			return workingDir;
+		}
+	}
+
+	private static ProcessHandle toHandle(Process process) {
+		if (process == null) {
+			return null;
+		}
+		try {
+			return process.toHandle();
+		} catch (UnsupportedOperationException e) {
+			// Spawner based processes might not support handles, try the pid
+		}
+		try {
+			return ProcessHandle.of(process.pid()).orElse(null);
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+	}
+
+	private static final class TrackedProcess {
+
+		private final Process process;
+		private final ProcessHandle handle;
+		private final PTY pty;
+		private boolean ptyClosed;
+
+		TrackedProcess(Process process, ProcessHandle handle, PTY pty) {
+			this.process = process;
+			this.handle = handle;
+			this.pty = pty;
+		}
+
+		long liveProcessCount() {
+			if (handle != null) {
+				return (handle.isAlive() ? 1 : 0) + handle.descendants().filter(ProcessHandle::isAlive).count();
+			}
+			return process != null && process.isAlive() ? 1 : 0;
+		}
+
+		boolean isStarted() {
+			return process != null || pty != null;
+		}
+
+		synchronized boolean hasOpenPty() {
+			return pty != null && !ptyClosed;
+		}
+
+		/**
+		 * Asks the whole tree to terminate and forcibly kills whatever is still
+		 * alive after a grace period. If <code>wait</code> is <code>false</code>
+		 * the grace period is handled asynchronously so the caller (usually the
+		 * UI thread closing a tab) is never blocked.
+		 */
+		void terminate(boolean wait) {
+			List<CompletableFuture<?>> exits = new ArrayList<>();
+			if (handle != null) {
+				// Collect the descendants first, once the parent is gone they are
+				// re-parented and can no longer be found
+				List<ProcessHandle> descendants = handle.descendants().toList();
+				exits.add(destroy(handle));
+				descendants.forEach(child -> exits.add(destroy(child)));
+			} else if (process != null) {
+				process.destroy();
+				exits.add(process.onExit().completeOnTimeout(null, TERMINATE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+						.thenRun(() -> {
+							if (process.isAlive()) {
+								process.destroyForcibly();
+							}
+						}));
+			}
+			closePty();
+			if (wait) {
+				try {
+					CompletableFuture.allOf(exits.toArray(CompletableFuture[]::new)).get(2 * TERMINATE_TIMEOUT_MS,
+							TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException | TimeoutException e) {
+					ILog.get().warn("Copilot CLI process tree did not terminate in time", e);
+				}
+			}
+		}
+
+		private static CompletableFuture<?> destroy(ProcessHandle handle) {
+			handle.destroy();
+			return handle.onExit().completeOnTimeout(null, TERMINATE_TIMEOUT_MS, TimeUnit.MILLISECONDS).thenRun(() -> {
+				if (handle.isAlive()) {
+					handle.destroyForcibly();
+				}
+			});
+		}
+
+		private synchronized void closePty() {
+			if (pty == null || ptyClosed) {
+				return;
+			}
+			ptyClosed = true;
+			try {
+				pty.getInputStream().close();
+			} catch (IOException e) {
+				// already closed
+			}
+			try {
+				pty.getOutputStream().close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+}
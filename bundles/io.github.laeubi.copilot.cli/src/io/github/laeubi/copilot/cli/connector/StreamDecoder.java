@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incrementally decodes the chunks read from the copilot process.
+ *
+ * A decoder keeps the state of a multibyte sequence split across two chunks,
+ * so it must only be used for a single stream. The returned text is backed by
+ * a reused buffer and is only valid until the next call.
+ *
+ * Only the plug-in's own {@link TerminalOutputListener}s see text produced by
+ * this decoder, the terminal widget still decodes the stream itself and is not
+ * affected by it.
+ */
+abstract class StreamDecoder {
+
+	static final char REPLACEMENT = '\uFFFD';
+
+	char[] chars = new char[8192];
+
+	/**
+	 * Decodes the given bytes, returning the text of all complete characters.
+	 */
+	abstract CharSequence decode(byte[] bytes, int offset, int length);
+
+	/**
+	 * Returns a decoder for the given charset, using a fast path for UTF-8 and
+	 * US-ASCII.
+	 */
+	static StreamDecoder forCharset(Charset charset) {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			return new Utf8(false);
+		}
+		if (StandardCharsets.US_ASCII.equals(charset)) {
+			return new Utf8(true);
+		}
+		return new Generic(charset);
+	}
+
+	final char[] ensureCapacity(int capacity) {
+		if (chars.length < capacity) {
+			chars = new char[Math.max(capacity, chars.length * 2)];
+		}
+		return chars;
+	}
+
+	/**
+	 * UTF-8 decoder following the WHATWG decoding algorithm. The state of an
+	 * incomplete sequence is kept in fields, so a sequence split across chunks
+	 * is completed without buffering the bytes again.
+	 */
+	static final class Utf8 extends StreamDecoder {
+
+		private final boolean asciiOnly;
+		private int codePoint;
+		private int needed;
+		private int lowerBoundary = 0x80;
+		private int upperBoundary = 0xBF;
+
+		Utf8(boolean asciiOnly) {
+			this.asciiOnly = asciiOnly;
+		}
+
+		@Override
+		CharSequence decode(byte[] bytes, int offset, int length) {
+			// every byte yields at most two chars (replacement plus reprocessed byte
+			// or the surrogate pair completing a sequence)
+			char[] out = ensureCapacity(2 * length + 2);
+			int count = 0;
+			int i = offset;
+			int end = offset + length;
+			while (i < end) {
+				if (needed == 0) {
+					// ASCII fast path
+					while (i < end && bytes[i] >= 0) {
+						out[count++] = (char) bytes[i++];
+					}
+					if (i == end) {
+						break;
+					}
+					int b = bytes[i++] & 0xFF;
+					if (!asciiOnly && b >= 0xC2 && b <= 0xDF && i < end && (bytes[i] & 0xC0) == 0x80) {
+						// complete two byte sequence
+						out[count++] = (char) (((b & 0x1F) << 6) | (bytes[i++] & 0x3F));
+						continue;
+					}
+					if (!asciiOnly && b >= 0xE1 && b <= 0xEF && b != 0xED && i + 1 < end
+							&& (bytes[i] & 0xC0) == 0x80 && (bytes[i + 1] & 0xC0) == 0x80) {
+						// complete three byte sequence without special boundaries, the most
+						// common case for box drawing and symbols in the CLI output
+						out[count++] = (char) (((b & 0x0F) << 12) | ((bytes[i] & 0x3F) << 6) | (bytes[i + 1] & 0x3F));
+						i += 2;
+						continue;
+					}
+					if (asciiOnly) {
+						out[count++] = REPLACEMENT;
+					} else if (b >= 0xC2 && b <= 0xDF) {
+						needed = 1;
+						codePoint = b & 0x1F;
+					} else if (b >= 0xE0 && b <= 0xEF) {
+						if (b == 0xE0) {
+							lowerBoundary = 0xA0;
+						} else if (b == 0xED) {
+							upperBoundary = 0x9F;
+						}
+						needed = 2;
+						codePoint = b & 0x0F;
+					} else if (b >= 0xF0 && b <= 0xF4) {
+						if (b == 0xF0) {
+							lowerBoundary = 0x90;
+						} else if (b == 0xF4) {
+							upperBoundary = 0x8F;
+						}
+						needed = 3;
+						codePoint = b & 0x07;
+					} else {
+						out[count++] = REPLACEMENT;
+					}
+					continue;
+				}
+				int b = bytes[i] & 0xFF;
+				if (b < lowerBoundary || b > upperBoundary) {
+					// invalid continuation, the byte is processed again as a lead byte
+					reset();
+					out[count++] = REPLACEMENT;
+					continue;
+				}
+				i++;
+				lowerBoundary = 0x80;
+				upperBoundary = 0xBF;
+				codePoint = (codePoint << 6) | (b & 0x3F);
+				if (--needed == 0) {
+					if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+						out[count++] = (char) codePoint;
+					} else {
+						out[count++] = Character.highSurrogate(codePoint);
+						out[count++] = Character.lowSurrogate(codePoint);
+					}
+					codePoint = 0;
+				}
+			}
+			return CharBuffer.wrap(out, 0, count);
+		}
+
+		private void reset() {
+			codePoint = 0;
+			needed = 0;
+			lowerBoundary = 0x80;
+			upperBoundary = 0xBF;
+		}
+	}
+
+	/**
+	 * Decoder for all other charsets, keeping the bytes of an incomplete
+	 * sequence for the next chunk.
+	 */
+	static final class Generic extends StreamDecoder {
+
+		private final CharsetDecoder decoder;
+		private ByteBuffer input = ByteBuffer.allocate(0);
+
+		Generic(Charset charset) {
+			decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+
+		@Override
+		CharSequence decode(byte[] bytes, int offset, int length) {
+			ByteBuffer in;
+			if (input.hasRemaining()) {
+				ByteBuffer joined = ByteBuffer.allocate(input.remaining() + length);
+				joined.put(input).put(bytes, offset, length).flip();
+				in = joined;
+			} else {
+				in = ByteBuffer.wrap(bytes, offset, length);
+			}
+			CharBuffer out = CharBuffer.wrap(ensureCapacity(
+					(int) Math.ceil(in.remaining() * (double) decoder.maxCharsPerByte()) + 2));
+			decoder.decode(in, out, false);
+			if (in.hasRemaining()) {
+				// keep the incomplete sequence, the passed array is reused by the caller
+				input = ByteBuffer.allocate(in.remaining()).put(in).flip();
+			} else {
+				input = ByteBuffer.allocate(0);
+			}
+			out.flip();
+			return out;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes text to the copilot process without building intermediate strings.
+ *
+ * The text is encoded straight into a reusable byte buffer using the charset
+ * of the terminal. Large content is read from a {@link TextSource} in bounded
+ * chunks, so it is never copied as a whole.
+ */
+public class TerminalInputWriter {
+
+	private static final int BUFFER_BYTES = 16384;
+
+	static final int CHUNK_CHARS = 4096;
+
+	private static final String PASTE_START = "\u001b[200~";
+	private static final String PASTE_END = "\u001b[201~";
+
+	private final OutputStream out;
+	private final Charset charset;
+	private final CharsetEncoder encoder;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+	private final CharBuffer chars = CharBuffer.allocate(CHUNK_CHARS);
+
+	/**
+	 * The number of characters of the end marker seen but not yet written
+	 */
+	private int matched;
+
+	TerminalInputWriter(OutputStream out, Charset charset) {
+		this.out = out;
+		this.charset = charset;
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	boolean isFor(OutputStream stream, Charset cs) {
+		return out == stream && charset.equals(cs);
+	}
+
+	/**
+	 * Pastes the given text followed by an optional selection into the
+	 * terminal. The content is always wrapped in bracketed paste markers, so
+	 * line breaks are never interpreted as submitting a part of the prompt. The
+	 * Node based CLI understands the markers even before it announces the mode.
+	 *
+	 * @param text      the text to paste first, might be <code>null</code>
+	 * @param selection the selected text to paste after it, read chunk by
+	 *                  chunk, might be <code>null</code>
+	 */
+	public synchronized void paste(CharSequence text, TextSource selection) throws IOException {
+		encoder.reset();
+		chars.clear();
+		matched = 0;
+		append(PASTE_START);
+		if (text != null) {
+			appendWithoutEndMarker(text);
+		}
+		int length = selection == null ? 0 : selection.length();
+		if (length > 0) {
+			if (text != null && text.length() > 0) {
+				append("\n");
+			}
+			for (int offset = 0; offset < length; offset += CHUNK_CHARS) {
+				appendWithoutEndMarker(selection.read(offset, Math.min(CHUNK_CHARS, length - offset)));
+			}
+		}
+		append(PASTE_END);
+		chars.flip();
+		encode(chars, true);
+		finish();
+		out.flush();
+	}
+
+	/**
+	 * Content containing the end marker must not end the paste early, so it is
+	 * dropped. A marker might straddle two chunks, the characters matching its
+	 * start are held back until the next chunk shows whether it completes.
+	 */
+	private void appendWithoutEndMarker(CharSequence text) throws IOException {
+		for (int i = 0, n = text.length(); i < n; i++) {
+			char c = text.charAt(i);
+			if (c == PASTE_END.charAt(matched)) {
+				if (++matched == PASTE_END.length()) {
+					matched = 0;
+				}
+				continue;
+			}
+			// the escape character only starts the marker, so a mismatch can
+			// at most start a new one
+			releaseMatched();
+			if (c == PASTE_END.charAt(0)) {
+				matched = 1;
+			} else {
+				append(c);
+			}
+		}
+	}
+
+	private void releaseMatched() throws IOException {
+		int held = matched;
+		matched = 0;
+		for (int i = 0; i < held; i++) {
+			append(PASTE_END.charAt(i));
+		}
+	}
+
+	private void append(String text) throws IOException {
+		releaseMatched();
+		for (int i = 0; i < text.length(); i++) {
+			append(text.charAt(i));
+		}
+	}
+
+	private void append(char c) throws IOException {
+		if (!chars.hasRemaining()) {
+			chars.flip();
+			encode(chars, false);
+			// keeps a high surrogate whose low surrogate is still to come
+			chars.compact();
+		}
+		chars.put(c);
+	}
+
+	/**
+	 * Encodes and writes the given text.
+	 */
+	public synchronized void write(CharSequence text) throws IOException {
+		encoder.reset();
+		encode(CharBuffer.wrap(text), true);
+		finish();
+	}
+
+	private void encode(CharBuffer chars, boolean endOfInput) throws IOException {
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, endOfInput);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isError()) {
+				result.throwException();
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void finish() throws IOException {
+		while (encoder.flush(buffer).isOverflow()) {
+			drain();
+		}
+		drain();
+	}
+
+	private void drain() throws IOException {
+		if (buffer.position() > 0) {
+			out.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+/**
+ * Receives the decoded output of a Copilot CLI session.
+ */
+@FunctionalInterface
+public interface TerminalOutputListener {
+
+	/**
+	 * Called from the stream reader thread with the next piece of output.
+	 *
+	 * @param text the decoded text, only valid for the duration of the call
+	 */
+	void outputReceived(CharSequence text);
+}
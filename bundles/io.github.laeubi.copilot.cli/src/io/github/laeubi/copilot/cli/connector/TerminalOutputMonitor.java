@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.terminal.view.core.ITerminalServiceOutputStreamMonitorListener;
+
+/**
+ * Watches the raw output of the copilot process.
+ *
+ * It records when the process last wrote something, which is used to detect
+ * that the CLI has settled, and keeps the last few KiB of raw output to look
+ * at what the CLI currently shows. If any {@link TerminalOutputListener} is
+ * registered the output is decoded with the {@link StreamDecoder} of the
+ * session charset.
+ */
+class TerminalOutputMonitor implements ITerminalServiceOutputStreamMonitorListener {
+
+	private static final long POLL_INTERVAL_MS = 100;
+
+	static final int TAIL_BYTES = 8192;
+
+	private final List<TerminalOutputListener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile long lastOutput;
+	private volatile Charset charset = StandardCharsets.UTF_8;
+	private StreamDecoder decoder;
+	private Charset decoderCharset;
+
+	/**
+	 * The last raw bytes written by the process, guarded by itself
+	 */
+	private final byte[] tail = new byte[TAIL_BYTES];
+	private int tailLength;
+
+	@Override
+	public void onContentReadFromStream(byte[] byteBuffer, int bytesRead) {
+		lastOutput = System.nanoTime();
+		synchronized (tail) {
+			if (bytesRead >= TAIL_BYTES) {
+				System.arraycopy(byteBuffer, bytesRead - TAIL_BYTES, tail, 0, TAIL_BYTES);
+				tailLength = TAIL_BYTES;
+			} else {
+				int keep = Math.min(tailLength, TAIL_BYTES - bytesRead);
+				System.arraycopy(tail, tailLength - keep, tail, 0, keep);
+				System.arraycopy(byteBuffer, 0, tail, keep, bytesRead);
+				tailLength = keep + bytesRead;
+			}
+		}
+		if (!listeners.isEmpty()) {
+			CharSequence text = decoder().decode(byteBuffer, 0, bytesRead);
+			if (text.length() > 0) {
+				for (TerminalOutputListener listener : listeners) {
+					try {
+						listener.outputReceived(text);
+					} catch (RuntimeException e) {
+						ILog.get().error("Copilot CLI output listener failed", e);
+					}
+				}
+			}
+		}
+	}
+
+	void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	void addListener(TerminalOutputListener listener) {
+		listeners.add(listener);
+	}
+
+	void removeListener(TerminalOutputListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return the last output of the process including its escape sequences,
+	 *         a character cut off at the start is replaced
+	 */
+	String getTail() {
+		synchronized (tail) {
+			return new String(tail, 0, tailLength, charset);
+		}
+	}
+
+	private StreamDecoder decoder() {
+		// only ever called from the single stream reader thread
+		Charset current = charset;
+		if (decoder == null || !current.equals(decoderCharset)) {
+			decoder = StreamDecoder.forCharset(current);
+			decoderCharset = current;
+		}
+		return decoder;
+	}
+
+	/**
+	 * @return <code>true</code> if the process has not written anything for at
+	 *         least the given time
+	 */
+	boolean isQuiet(long quietMillis) {
+		long last = lastOutput;
+		return last == 0 || System.nanoTime() - last >= TimeUnit.MILLISECONDS.toNanos(quietMillis);
+	}
+
+	/**
+	 * Returns a future that completes once the process has produced output and
+	 * then stayed quiet for the given time.
+	 */
+	CompletableFuture<Void> awaitQuiet(long quietMillis, Executor executor) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		poll(future, TimeUnit.MILLISECONDS.toNanos(quietMillis), executor);
+		return future;
+	}
+
+	private void poll(CompletableFuture<Void> future, long quietNanos, Executor executor) {
+		if (future.isDone()) {
+			return;
+		}
+		long last = lastOutput;
+		if (last != 0 && System.nanoTime() - last >= quietNanos) {
+			future.complete(null);
+			return;
+		}
+		CompletableFuture.delayedExecutor(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS, executor)
+				.execute(() -> poll(future, quietNanos, executor));
+	}
+}
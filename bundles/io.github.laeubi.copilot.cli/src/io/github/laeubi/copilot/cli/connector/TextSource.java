@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.connector;
+
+import java.io.IOException;
+
+/**
+ * Text that is read in bounded chunks, so large content like an editor
+ * selection never has to be copied as a whole.
+ */
+public interface TextSource {
+
+	/**
+	 * @return the number of characters
+	 * @throws IOException if the text is no longer available
+	 */
+	int length() throws IOException;
+
+	/**
+	 * @param offset the offset of the first character to read
+	 * @param length the number of characters to read
+	 * @return the characters of the given range
+	 * @throws IOException if the text is no longer available
+	 */
+	CharSequence read(int offset, int length) throws IOException;
+}
@@ -29,6 +29,8 @@ import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.terminal.view.core.ITerminalsConnectorConstants;
 import org.eclipse.ui.handlers.HandlerUtil;
 
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.UiWatchdog;
 import io.github.laeubi.copilot.cli.launcher.CopilotCliLauncherDelegate;
 
 /**
@@ -44,14 +46,14 @@ public class AskCopilotHandler extends AbstractHandler {
 
 	@Override
 	public Object execute(ExecutionEvent event) throws ExecutionException {
-		try {
+		try (UiWatchdog.Scope scope = UiWatchdog.enter("AskCopilotHandler.execute")) {
 			// Get the working directory from selection
 			String workingDir = getWorkingDirectory(event);
 			if (workingDir == null) {
 				// Fallback to user home
 				workingDir = System.getProperty("user.home");
 			}
-			openCopilotTerminal(workingDir, null);
+			openCopilotTerminal(workingDir);
 		} catch (Exception e) {
 			ILog.get().error("Error opening Copilot terminal", e);
 		}
@@ -94,14 +96,15 @@ public class AskCopilotHandler extends AbstractHandler {
 	}
 
 	/**
-	 * Find the Git repository root by searching for .git directory
+	 * Find the Git repository root by searching for .git directory, or a .git
+	 * file as used by worktrees and submodules
 	 */
 	private File findGitRoot(File file) {
 		File current = file.isDirectory() ? file : file.getParentFile();
 		
 		while (current != null) {
 			File gitDir = new File(current, ".git");
-			if (gitDir.exists() && gitDir.isDirectory()) {
+			if (gitDir.exists()) {
 				return current;
 			}
 			current = current.getParentFile();
@@ -113,7 +116,12 @@ public class AskCopilotHandler extends AbstractHandler {
 	/**
 	 * Open a new Copilot terminal for the given working directory
 	 */
-	private void openCopilotTerminal(String workingDir, String prompt) {
+	private void openCopilotTerminal(String workingDir) {
+		Activator activator = Activator.getDefault();
+		if (activator == null) {
+			// the plug-in is stopping
+			return;
+		}
 		if (workingDir == null) {
 			workingDir = System.getProperty("user.home");
 		}
@@ -140,14 +148,12 @@ public class AskCopilotHandler extends AbstractHandler {
 		// Don't force new - reuse existing terminal if one exists for this directory
 		properties.put(ITerminalsConnectorConstants.PROP_FORCE_NEW, Boolean.FALSE);
 
-		// Execute through the delegate
+		// Execute through the delegate, follow-up work runs on the plugin I/O pool
 		CopilotCliLauncherDelegate delegate = new CopilotCliLauncherDelegate();
-		delegate.execute(properties).whenComplete((result, error) -> {
+		delegate.execute(properties).whenCompleteAsync((result, error) -> {
 			if (error != null) {
 				ILog.get().error("Error opening Copilot terminal", error);
-			} else if (prompt != null && !prompt.trim().isEmpty()) {
-				// TODO paste as string into terminal
 			}
-		});
+		}, activator.getExecutor().io());
 	}
 }
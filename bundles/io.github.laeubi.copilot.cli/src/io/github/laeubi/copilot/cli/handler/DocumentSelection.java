@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.handler;
+
+import java.io.IOException;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.swt.widgets.Display;
+
+import io.github.laeubi.copilot.cli.connector.TextSource;
+
+/**
+ * A selection of an editor document that is read in chunks when the prompt is
+ * sent. Documents are not thread safe, so every chunk is read on the UI thread.
+ * The range is registered as a position of the document and follows edits
+ * until the selection is disposed; if the selected text is deleted meanwhile
+ * reading fails.
+ */
+final class DocumentSelection implements TextSource {
+
+	private final Display display;
+	private final IDocument document;
+	private final Position position;
+
+	private DocumentSelection(Display display, IDocument document, Position position) {
+		this.display = display;
+		this.document = document;
+		this.position = position;
+	}
+
+	/**
+	 * Must be called on the UI thread
+	 *
+	 * @return the selection or <code>null</code> if the range is not part of
+	 *         the document
+	 */
+	static DocumentSelection create(IDocument document, int offset, int length) {
+		Position position = new Position(offset, length);
+		try {
+			document.addPosition(position);
+		} catch (BadLocationException e) {
+			return null;
+		}
+		return new DocumentSelection(Display.getCurrent(), document, position);
+	}
+
+	@Override
+	public int length() throws IOException {
+		int[] length = new int[1];
+		syncExec(() -> length[0] = position.getLength());
+		return length[0];
+	}
+
+	@Override
+	public CharSequence read(int offset, int length) throws IOException {
+		String[] chunk = new String[1];
+		syncExec(() -> {
+			if (!position.isDeleted() && offset + length <= position.getLength()) {
+				try {
+					chunk[0] = document.get(position.getOffset() + offset, length);
+				} catch (BadLocationException e) {
+					// reported below
+				}
+			}
+		});
+		if (chunk[0] == null) {
+			throw new IOException("The selected text was changed meanwhile");
+		}
+		return chunk[0];
+	}
+
+	private void syncExec(Runnable runnable) throws IOException {
+		if (display.isDisposed()) {
+			throw new IOException("The workbench is closing");
+		}
+		if (display.getThread() == Thread.currentThread()) {
+			runnable.run();
+		} else {
+			display.syncExec(runnable);
+		}
+	}
+
+	/**
+	 * Stops tracking the range, might be called from any thread
+	 */
+	void dispose() {
+		if (!display.isDisposed()) {
+			display.asyncExec(() -> document.removePosition(position));
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.handler;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.widgets.Display;
+
+import io.github.laeubi.copilot.cli.Activator;
+
+/**
+ * Handler for the "Open Parallel Copilot Session" command. Works like
+ * {@link OpenPromptHandler} but runs the session in its own Git worktree of
+ * the repository, so several agents can work on the same repository at the
+ * same time without interfering with each other.
+ */
+public class OpenParallelSessionHandler extends OpenPromptHandler {
+
+	private static final String TITLE = "Parallel Copilot Session";
+
+	@Override
+	protected void openSession(String workingDir, String prompt, DocumentSelection selection) {
+		Activator activator = Activator.getDefault();
+		if (activator == null) {
+			// the plug-in is stopping
+			dispose(selection);
+			return;
+		}
+		File gitRoot = findGitRoot(new File(workingDir));
+		Display display = Display.getDefault();
+		if (gitRoot == null) {
+			MessageDialog.openError(display.getActiveShell(), TITLE,
+					"Parallel sessions need a Git repository, but " + workingDir + " is not inside one.");
+			dispose(selection);
+			return;
+		}
+		activator.getWorktrees().acquire(gitRoot.toPath()).whenCompleteAsync((worktree, error) -> {
+			if (error != null) {
+				ILog.get().warn("Can't create a worktree for a parallel Copilot session", error);
+				Throwable cause = error.getCause() != null ? error.getCause() : error;
+				MessageDialog.openError(display.getActiveShell(), TITLE, cause.getMessage());
+				dispose(selection);
+			} else {
+				openCopilotTerminal(worktree.toString(), prompt, selection);
+			}
+		}, display::asyncExec);
+	}
+
+	private static void dispose(DocumentSelection selection) {
+		if (selection != null) {
+			selection.dispose();
+		}
+	}
+}
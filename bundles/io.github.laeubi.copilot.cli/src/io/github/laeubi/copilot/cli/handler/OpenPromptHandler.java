@@ -12,8 +12,13 @@
 package io.github.laeubi.copilot.cli.handler;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
@@ -25,7 +30,7 @@ import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
-import org.eclipse.jface.dialogs.InputDialog;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
@@ -39,7 +44,16 @@ import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.handlers.HandlerUtil;
 import org.eclipse.ui.texteditor.ITextEditor;
 
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.UiWatchdog;
+import io.github.laeubi.copilot.cli.cache.ResponseCache;
+import io.github.laeubi.copilot.cli.cache.ResponseRecorder;
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.TextSource;
+import io.github.laeubi.copilot.cli.history.PromptHistory;
 import io.github.laeubi.copilot.cli.launcher.CopilotCliLauncherDelegate;
+import io.github.laeubi.copilot.cli.preferences.PreferenceConstants;
+import io.github.laeubi.copilot.cli.session.PromptScheduler;
 
 /**
  * Handler for the "Open Prompt" command that opens a Copilot CLI terminal
@@ -48,6 +62,8 @@ import io.github.laeubi.copilot.cli.launcher.CopilotCliLauncherDelegate;
  */
 public class OpenPromptHandler extends AbstractHandler {
 
+	private static final long CONNECT_TIMEOUT_MS = 30000;
+
 	@Override
 	public boolean isEnabled() {
 		return true;
@@ -55,7 +71,12 @@ public class OpenPromptHandler extends AbstractHandler {
 
 	@Override
 	public Object execute(ExecutionEvent event) throws ExecutionException {
-		try {
+		Activator activator = Activator.getDefault();
+		if (activator == null) {
+			// the plug-in is stopping
+			return null;
+		}
+		try (UiWatchdog.Scope scope = UiWatchdog.enter(getClass().getSimpleName() + ".execute")) {
 			// Get the working directory from active editor or selection
 			String workingDir = getWorkingDirectory(event);
 			if (workingDir == null) {
@@ -65,24 +86,26 @@ public class OpenPromptHandler extends AbstractHandler {
 
 			// Get context information for pre-filling the dialog
 			String initialPrompt = buildInitialPrompt(event, workingDir);
+			DocumentSelection inlineSelection = getInlineSelection(event);
+			if (inlineSelection != null && (initialPrompt == null || initialPrompt.isBlank())) {
+				initialPrompt = "See the following selection";
+			}
 			if (initialPrompt == null || initialPrompt.isBlank()) {
-				openCopilotTerminal(workingDir, null);
+				openSession(workingDir, null, null);
 				return null;
 			}
 
-			// Show prompt dialog
-			InputDialog dialog = new InputDialog(
-				Display.getDefault().getActiveShell(),
-				"Ask Copilot",
-				"Enter your prompt for GitHub Copilot:",
-				initialPrompt,
-				null
-			);
+			// Show prompt dialog, the history of the repository is loaded while it opens
+			CompletableFuture<PromptHistory> history = activator.getPromptHistories().get(workingDir);
+			PromptDialog dialog = new PromptDialog(Display.getDefault().getActiveShell(), initialPrompt, history);
 
 			if (dialog.open() == Window.OK) {
-				String prompt = dialog.getValue();
+				String prompt = dialog.getPrompt();
+				history.thenAccept(h -> h.add(prompt));
 				// Open the Copilot terminal with the determined working directory
-				openCopilotTerminal(workingDir, prompt);
+				openSession(workingDir, prompt, inlineSelection);
+			} else if (inlineSelection != null) {
+				inlineSelection.dispose();
 			}
 
 		} catch (Exception e) {
@@ -129,6 +152,32 @@ public class OpenPromptHandler extends AbstractHandler {
 		return "";
 	}
 
+	/**
+	 * Returns the selection of the active text editor if it has to be sent
+	 * inline, that is when the editor is dirty or not backed by a file, so a
+	 * file reference alone would not show the right content. The text is not
+	 * copied here, it is read from the document in chunks once the prompt is
+	 * sent.
+	 */
+	private DocumentSelection getInlineSelection(ExecutionEvent event) throws ExecutionException {
+		IWorkbenchPage page = HandlerUtil.getActiveWorkbenchWindow(event).getActivePage();
+		if (page == null || !(page.getActiveEditor() instanceof ITextEditor textEditor)) {
+			return null;
+		}
+		if (!(textEditor.getSelectionProvider().getSelection() instanceof ITextSelection textSelection)
+				|| textSelection.isEmpty() || textSelection.getLength() == 0) {
+			return null;
+		}
+		if (!textEditor.isDirty() && getFileFromEditor(textEditor) != null) {
+			return null;
+		}
+		IDocument document = textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+		if (document == null) {
+			return null;
+		}
+		return DocumentSelection.create(document, textSelection.getOffset(), textSelection.getLength());
+	}
+
 	/**
 	 * Get the relative path from base directory to target file
 	 */
@@ -223,14 +272,23 @@ public class OpenPromptHandler extends AbstractHandler {
 	}
 
 	/**
-	 * Find the Git repository root by searching for .git directory
+	 * Opens the session the prompt is sent to, by default the terminal of the
+	 * working directory
 	 */
-	private File findGitRoot(File file) {
+	protected void openSession(String workingDir, String prompt, DocumentSelection selection) {
+		openCopilotTerminal(workingDir, prompt, selection);
+	}
+
+	/**
+	 * Find the Git repository root by searching for .git directory, or a .git
+	 * file as used by worktrees and submodules
+	 */
+	File findGitRoot(File file) {
 		File current = file.isDirectory() ? file : file.getParentFile();
 		
 		while (current != null) {
 			File gitDir = new File(current, ".git");
-			if (gitDir.exists() && gitDir.isDirectory()) {
+			if (gitDir.exists()) {
 				return current;
 			}
 			current = current.getParentFile();
@@ -242,7 +300,14 @@ public class OpenPromptHandler extends AbstractHandler {
 	/**
 	 * Open a new Copilot terminal for the given working directory
 	 */
-	private void openCopilotTerminal(String workingDir, String prompt) {
+	void openCopilotTerminal(String workingDir, String prompt, DocumentSelection selection) {
+		Activator activator = Activator.getDefault();
+		if (activator == null) {
+			if (selection != null) {
+				selection.dispose();
+			}
+			return;
+		}
 		if (workingDir == null) {
 			workingDir = System.getProperty("user.home");
 		}
@@ -269,15 +334,130 @@ public class OpenPromptHandler extends AbstractHandler {
 		// Don't force new - reuse existing terminal if one exists for this directory
 		properties.put(ITerminalsConnectorConstants.PROP_FORCE_NEW, Boolean.FALSE);
 
-		// Execute through the delegate
+		// Execute through the delegate, follow-up work runs on the plugin I/O pool
+		String sessionDir = workingDir;
 		CopilotCliLauncherDelegate delegate = new CopilotCliLauncherDelegate();
-		delegate.execute(properties).whenComplete((result, error) -> {
+		delegate.execute(properties).whenCompleteAsync((result, error) -> {
+			if (error == null && prompt != null && !prompt.trim().isEmpty()) {
+				sendPrompt(activator, sessionDir, prompt, selection);
+				return;
+			}
 			if (error != null) {
 				ILog.get().error("Error opening Copilot terminal", error);
-			} else if (prompt != null && !prompt.trim().isEmpty()) {
-				// TODO we need to get the and perform
-				// terminalViewControl.pasteString(finalCommand);
+			}
+			if (selection != null) {
+				selection.dispose();
+			}
+		}, activator.getExecutor().io());
+	}
+
+	/**
+	 * Queues the prompt and the optional selection for the session, it is
+	 * pasted and submitted once the CLI is idle.
+	 */
+	private void sendPrompt(Activator activator, String workingDir, String prompt, DocumentSelection selection) {
+		PromptScheduler scheduler = activator.getPromptScheduler();
+		activator.getResourceTracker().awaitConnector(workingDir, CONNECT_TIMEOUT_MS).thenCompose(connector -> {
+			if (activator.getPreferenceStore().getBoolean(PreferenceConstants.RESPONSE_CACHE)) {
+				CachedPrompt cached = new CachedPrompt(activator.getResponseCache(), workingDir, prompt, selection);
+				return scheduler.enqueue(connector, prompt, PromptScheduler.Priority.NORMAL, cached).getCompletion()
+						.whenComplete(cached::finished);
+			}
+			return scheduler.enqueue(connector, prompt, PromptScheduler.Priority.NORMAL, session -> {
+				session.getInputWriter().paste(prompt, selection);
+				return true;
+			}).getCompletion();
+		}).exceptionally(error -> {
+			Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+					: error;
+			if (!(cause instanceof CancellationException)) {
+				ILog.get().error("Error sending prompt to Copilot terminal", error);
+			}
+			return null;
+		}).thenRun(() -> {
+			if (selection != null) {
+				selection.dispose();
 			}
 		});
 	}
+
+	/**
+	 * Answers the prompt from the response cache if it was asked before in the
+	 * same working directory over the same file contents, prompts that do not
+	 * reference an existing file are never cached. Otherwise the prompt is
+	 * pasted and submitted, and the output is recorded until the CLI is idle
+	 * again and then stored in the cache.
+	 *
+	 * Only the text of an answer can be replayed, so answers are only stored if
+	 * the agent did not change any file in the working directory meanwhile, and
+	 * a replay is labeled as such.
+	 */
+	private static final class CachedPrompt implements PromptScheduler.PromptTask {
+
+		private final ResponseCache cache;
+		private final String workingDir;
+		private final String prompt;
+		private final TextSource selection;
+		private final ResponseRecorder recorder = new ResponseRecorder();
+		private ResponseCache.Key key;
+		private CopilotCliConnector recording;
+		private long changesBefore;
+
+		CachedPrompt(ResponseCache cache, String workingDir, String prompt, TextSource selection) {
+			this.cache = cache;
+			this.workingDir = workingDir;
+			this.prompt = prompt;
+			this.selection = selection;
+		}
+
+		@Override
+		public boolean send(CopilotCliConnector connector) throws IOException {
+			ResponseCache.KeyBuilder keyBuilder = ResponseCache.newKey().add(prompt).add(connector.getArguments())
+					.addReferencedFiles(prompt, new File(workingDir).toPath());
+			if (!keyBuilder.hasFiles()) {
+				// nothing the answer depends on is known, so it is never cached
+				connector.getInputWriter().paste(prompt, selection);
+				return true;
+			}
+			if (selection != null) {
+				keyBuilder.add(selection);
+			}
+			key = keyBuilder.build();
+			Optional<String> cached = cache.get(key);
+			if (cached.isPresent()) {
+				connector.display("\n[Cached Copilot response, text only, file changes are not applied again; "
+						+ cache.getStatistics() + "]\n" + cached.get() + "\n");
+				return false;
+			}
+			connector.getInputWriter().paste(prompt, selection);
+			return true;
+		}
+
+		@Override
+		public void submitted(CopilotCliConnector connector) {
+			if (key == null) {
+				return;
+			}
+			changesBefore = getChangeCount();
+			connector.addOutputListener(recorder);
+			recording = connector;
+		}
+
+		void finished(Void result, Throwable error) {
+			if (recording == null) {
+				return;
+			}
+			recording.removeOutputListener(recorder);
+			String response = recorder.getResponse();
+			// an answer that changed files can not be replayed from its text
+			if (error == null && response != null && changesBefore >= 0 && getChangeCount() == changesBefore) {
+				cache.put(key, response);
+			}
+		}
+
+		private long getChangeCount() {
+			Activator activator = Activator.getDefault();
+			return activator == null ? -1 : activator.getFileWatcher().getChangeCount(workingDir);
+		}
+	}
 }
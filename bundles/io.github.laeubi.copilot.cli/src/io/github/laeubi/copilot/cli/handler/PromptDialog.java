@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.handler;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.KeyListener;
+import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+
+import io.github.laeubi.copilot.cli.history.PromptHistory;
+
+/**
+ * Dialog to enter a prompt for Copilot, showing matching prompts from the
+ * history of the repository while typing.
+ *
+ * The dialog opens right away, the history is filled in once it has been
+ * loaded in the background. Enter submits the prompt, Shift+Enter inserts a
+ * line break and the down arrow moves into the history list.
+ */
+public class PromptDialog extends Dialog {
+
+	private static final int MAX_SUGGESTIONS = 50;
+
+	private final String initialPrompt;
+
+	private final CompletableFuture<PromptHistory> history;
+
+	private Text text;
+
+	private org.eclipse.swt.widgets.List suggestions;
+
+	private List<String> suggested = List.of();
+
+	private boolean applyingSuggestion;
+
+	private String prompt;
+
+	public PromptDialog(Shell parentShell, String initialPrompt, CompletableFuture<PromptHistory> history) {
+		super(parentShell);
+		this.initialPrompt = initialPrompt;
+		this.history = history;
+	}
+
+	@Override
+	protected void configureShell(Shell shell) {
+		super.configureShell(shell);
+		shell.setText("Ask Copilot");
+	}
+
+	@Override
+	protected boolean isResizable() {
+		return true;
+	}
+
+	@Override
+	protected Control createDialogArea(Composite parent) {
+		Composite composite = (Composite) super.createDialogArea(parent);
+		new Label(composite, SWT.NONE).setText("Enter your prompt for GitHub Copilot:");
+		text = new Text(composite, SWT.BORDER | SWT.MULTI | SWT.WRAP | SWT.V_SCROLL);
+		GridData textData = new GridData(SWT.FILL, SWT.FILL, true, false);
+		textData.widthHint = convertWidthInCharsToPixels(80);
+		textData.heightHint = convertHeightInCharsToPixels(4);
+		text.setLayoutData(textData);
+		if (initialPrompt != null) {
+			text.setText(initialPrompt);
+			text.selectAll();
+		}
+		text.addModifyListener(e -> {
+			if (!applyingSuggestion) {
+				updateSuggestions();
+			}
+		});
+		text.addKeyListener(KeyListener.keyPressedAdapter(e -> {
+			if (e.keyCode == SWT.CR && (e.stateMask & SWT.SHIFT) == 0) {
+				e.doit = false;
+				okPressed();
+			} else if (e.keyCode == SWT.ARROW_DOWN && suggestions.getItemCount() > 0
+					&& text.getText().indexOf('\n') < 0) {
+				e.doit = false;
+				suggestions.setFocus();
+				suggestions.select(0);
+				applySuggestion();
+			}
+		}));
+
+		new Label(composite, SWT.NONE).setText("&History:");
+		suggestions = new org.eclipse.swt.widgets.List(composite, SWT.BORDER | SWT.SINGLE | SWT.V_SCROLL);
+		GridData listData = new GridData(SWT.FILL, SWT.FILL, true, true);
+		listData.heightHint = convertHeightInCharsToPixels(8);
+		suggestions.setLayoutData(listData);
+		suggestions.addSelectionListener(SelectionListener.widgetSelectedAdapter(e -> applySuggestion()));
+		suggestions.addSelectionListener(SelectionListener.widgetDefaultSelectedAdapter(e -> {
+			applySuggestion();
+			okPressed();
+		}));
+
+		Display display = parent.getDisplay();
+		history.thenAcceptAsync(h -> {
+			if (!suggestions.isDisposed()) {
+				updateSuggestions();
+			}
+		}, display::asyncExec);
+		updateSuggestions();
+		return composite;
+	}
+
+	private void updateSuggestions() {
+		PromptHistory loaded = history.getNow(null);
+		if (loaded == null) {
+			suggestions.setItems("Loading history...");
+			suggestions.setEnabled(false);
+			suggested = List.of();
+			return;
+		}
+		String query = text.getText();
+		if (query.equals(initialPrompt)) {
+			// the prefilled reference would not match anything, show the recent
+			// prompts instead
+			query = "";
+		}
+		suggested = loaded.search(query, MAX_SUGGESTIONS);
+		suggestions.setItems(suggested.stream().map(s -> s.replace('\n', ' ')).toArray(String[]::new));
+		suggestions.setEnabled(!suggested.isEmpty());
+	}
+
+	private void applySuggestion() {
+		int index = suggestions.getSelectionIndex();
+		if (index < 0 || index >= suggested.size()) {
+			return;
+		}
+		applyingSuggestion = true;
+		try {
+			text.setText(suggested.get(index));
+		} finally {
+			applyingSuggestion = false;
+		}
+	}
+
+	@Override
+	protected void okPressed() {
+		prompt = text.getText();
+		super.okPressed();
+	}
+
+	/**
+	 * @return the entered prompt, or <code>null</code> if the dialog was
+	 *         cancelled
+	 */
+	public String getPrompt() {
+		return prompt;
+	}
+}
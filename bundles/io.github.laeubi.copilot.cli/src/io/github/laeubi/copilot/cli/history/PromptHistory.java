@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.history;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.core.runtime.ILog;
+
+/**
+ * The prompts used in one repository, searchable while the user types.
+ *
+ * The history is stored in an append-only file with one prompt per line, line
+ * breaks and backslashes are escaped. Using a prompt again only appends it, so
+ * the file is compacted on load once it holds many more lines than prompts.
+ */
+public class PromptHistory {
+
+	static final int MAX_ENTRIES = 5000;
+
+	private final Path file;
+
+	private final Executor executor;
+
+	private final PromptIndex index = new PromptIndex(MAX_ENTRIES);
+
+	private PromptHistory(Path file, Executor executor) {
+		this.file = file;
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates an empty history that appends to the given file.
+	 */
+	static PromptHistory empty(Path file, Executor executor) {
+		return new PromptHistory(file, executor);
+	}
+
+	/**
+	 * Reads the history from the given file, blocks on I/O.
+	 */
+	static PromptHistory load(Path file, Executor executor) throws IOException {
+		PromptHistory history = new PromptHistory(file, executor);
+		int lines = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					history.index.add(unescape(line));
+					lines++;
+				}
+			}
+		} catch (NoSuchFileException e) {
+			return history;
+		}
+		if (lines > 2 * Math.max(history.index.size(), MAX_ENTRIES / 2)) {
+			history.compact();
+		}
+		return history;
+	}
+
+	/**
+	 * Returns the prompts best matching the query, most relevant first. Fast
+	 * enough to be called on every key stroke.
+	 */
+	public synchronized List<String> search(String query, int limit) {
+		return index.search(query, limit);
+	}
+
+	/**
+	 * Records a used prompt and appends it to the history file in the
+	 * background.
+	 */
+	public void add(String prompt) {
+		if (prompt == null || prompt.isBlank()) {
+			return;
+		}
+		synchronized (this) {
+			index.add(prompt);
+		}
+		try {
+			executor.execute(() -> append(prompt));
+		} catch (RejectedExecutionException e) {
+			ILog.get().warn("Can't store Copilot prompt history in " + file, e);
+		}
+	}
+
+	private synchronized void append(String prompt) {
+		try {
+			Files.createDirectories(file.getParent());
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND)) {
+				writer.write(escape(prompt));
+				writer.write('\n');
+			}
+		} catch (IOException e) {
+			ILog.get().warn("Can't store Copilot prompt history in " + file, e);
+		}
+	}
+
+	private void compact() throws IOException {
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (String prompt : index.getPrompts()) {
+				writer.write(escape(prompt));
+				writer.write('\n');
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	static String escape(String prompt) {
+		StringBuilder builder = new StringBuilder(prompt.length() + 8);
+		for (int i = 0; i < prompt.length(); i++) {
+			char c = prompt.charAt(i);
+			switch (c) {
+			case '\\' -> builder.append("\\\\");
+			case '\n' -> builder.append("\\n");
+			case '\r' -> builder.append("\\r");
+			default -> builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	static String unescape(String line) {
+		if (line.indexOf('\\') < 0) {
+			return line;
+		}
+		StringBuilder builder = new StringBuilder(line.length());
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\\' && i + 1 < line.length()) {
+				char next = line.charAt(++i);
+				builder.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.ILog;
+
+import io.github.laeubi.copilot.cli.BackgroundExecutor;
+
+/**
+ * Gives access to the {@link PromptHistory} of each repository root. A history
+ * is loaded on the I/O pool the first time it is requested and then kept in
+ * memory.
+ */
+public class PromptHistoryStore {
+
+	private final Path directory;
+
+	private final BackgroundExecutor executor;
+
+	private final Map<String, CompletableFuture<PromptHistory>> histories = new ConcurrentHashMap<>();
+
+	public PromptHistoryStore(Path directory, BackgroundExecutor executor) {
+		this.directory = directory;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the history of the given repository root, the future completes
+	 * once the history is loaded. It never completes exceptionally, if the
+	 * history can't be read an empty one is used.
+	 */
+	public CompletableFuture<PromptHistory> get(String root) {
+		String key = key(root);
+		Path file = directory.resolve(fileName(key));
+		return histories.computeIfAbsent(key, k -> executor.supplyIo(() -> {
+			try {
+				return PromptHistory.load(file, executor.io());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}).exceptionally(error -> {
+			ILog.get().warn("Can't read Copilot prompt history of " + root, error);
+			return PromptHistory.empty(file, executor.io());
+		}));
+	}
+
+	private static String key(String root) {
+		try {
+			return Path.of(root).toAbsolutePath().normalize().toString();
+		} catch (InvalidPathException e) {
+			return root;
+		}
+	}
+
+	private static String fileName(String key) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(hash, 0, 16) + ".history";
+		} catch (NoSuchAlgorithmException e) {
+			// every Java runtime has to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
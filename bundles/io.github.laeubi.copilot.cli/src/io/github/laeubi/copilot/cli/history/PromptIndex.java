@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In memory trigram index over the prompts of a {@link PromptHistory}.
+ *
+ * Every prompt gets an increasing id, so the postings of a trigram are sorted
+ * by recency without any extra work. A query first counts, per prompt, how
+ * many of its trigrams occur in the prompt. Prompts containing the query are
+ * ranked first, prompts starting with it before all others. If that is not
+ * enough, prompts sharing at least half of the trigrams are added as fuzzy
+ * matches, which tolerates typos and reordered words. A prompt used again is
+ * re-added with a new id and the old one becomes a tombstone.
+ */
+final class PromptIndex {
+
+	private static final int GRAM = 3;
+
+	private static final double FUZZY_THRESHOLD = 0.5;
+
+	private static final int RANK_FUZZY = 0;
+	private static final int RANK_CONTAINS = 1;
+	private static final int RANK_PREFIX = 2;
+
+	private final int maxEntries;
+
+	private final List<String> entries = new ArrayList<>();
+
+	private final List<String> lowerEntries = new ArrayList<>();
+
+	private final BitSet removed = new BitSet();
+
+	private final Map<String, Integer> ids = new HashMap<>();
+
+	private final Map<Long, Postings> postings = new HashMap<>();
+
+	PromptIndex(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Adds the prompt as the most recent one, dropping the oldest prompts above
+	 * the maximum
+	 */
+	void add(String prompt) {
+		int id = entries.size();
+		Integer previous = ids.put(prompt, id);
+		if (previous != null) {
+			removed.set(previous);
+		}
+		String lower = prompt.toLowerCase(Locale.ROOT);
+		entries.add(prompt);
+		lowerEntries.add(lower);
+		for (int i = 0; i + GRAM <= lower.length(); i++) {
+			postings.computeIfAbsent(gram(lower, i), g -> new Postings()).add(id);
+		}
+		while (ids.size() > maxEntries) {
+			int oldest = removed.nextClearBit(0);
+			removed.set(oldest);
+			ids.remove(entries.get(oldest));
+		}
+	}
+
+	/**
+	 * @return the number of prompts in the index
+	 */
+	int size() {
+		return ids.size();
+	}
+
+	/**
+	 * @return the live prompts from the oldest to the most recent one
+	 */
+	List<String> getPrompts() {
+		List<String> prompts = new ArrayList<>(ids.size());
+		for (int id = removed.nextClearBit(0); id < entries.size(); id = removed.nextClearBit(id + 1)) {
+			prompts.add(entries.get(id));
+		}
+		return prompts;
+	}
+
+	/**
+	 * Returns the best matches for the query, most relevant first. An empty
+	 * query returns the most recent prompts.
+	 */
+	List<String> search(String query, int limit) {
+		String lower = query.strip().toLowerCase(Locale.ROOT);
+		if (lower.length() < GRAM) {
+			return scan(lower, limit);
+		}
+		long[] grams = grams(lower);
+		int[] counts = new int[entries.size()];
+		int[] touched = new int[16];
+		int touchedCount = 0;
+		for (long gram : grams) {
+			Postings list = postings.get(gram);
+			if (list == null) {
+				continue;
+			}
+			for (int i = 0; i < list.size; i++) {
+				int id = list.ids[i];
+				if (counts[id]++ == 0) {
+					if (touchedCount == touched.length) {
+						touched = Arrays.copyOf(touched, touchedCount * 2);
+					}
+					touched[touchedCount++] = id;
+				}
+			}
+		}
+		int minimum = Math.max(1, (int) Math.ceil(grams.length * FUZZY_THRESHOLD));
+		// rank, gram count and id packed into one sort key so sorting stays
+		// primitive, ids and counts always fit into 24 bits
+		long[] keys = new long[touchedCount];
+		int keyCount = 0;
+		for (int i = 0; i < touchedCount; i++) {
+			int id = touched[i];
+			int count = counts[id];
+			if (removed.get(id) || count < minimum) {
+				continue;
+			}
+			int rank = RANK_FUZZY;
+			if (count == grams.length) {
+				String entry = lowerEntries.get(id);
+				if (entry.startsWith(lower)) {
+					rank = RANK_PREFIX;
+				} else if (entry.contains(lower)) {
+					rank = RANK_CONTAINS;
+				}
+			}
+			keys[keyCount++] = ((long) rank << 48) | ((long) Math.min(count, 0xFFFFFF) << 24) | id;
+		}
+		Arrays.sort(keys, 0, keyCount);
+		List<String> result = new ArrayList<>(Math.min(limit, keyCount));
+		for (int i = keyCount - 1; i >= 0 && result.size() < limit; i--) {
+			result.add(entries.get((int) (keys[i] & 0xFFFFFF)));
+		}
+		return result;
+	}
+
+	/**
+	 * Short queries match too many prompts for the index to help, so recent
+	 * prompts are scanned until enough matches are found
+	 */
+	private List<String> scan(String lower, int limit) {
+		List<String> prefixMatches = new ArrayList<>();
+		List<String> matches = new ArrayList<>();
+		for (int id = entries.size() - 1; id >= 0 && prefixMatches.size() < limit; id--) {
+			if (removed.get(id)) {
+				continue;
+			}
+			String entry = lowerEntries.get(id);
+			if (entry.startsWith(lower)) {
+				prefixMatches.add(entries.get(id));
+			} else if (matches.size() < limit && entry.contains(lower)) {
+				matches.add(entries.get(id));
+			}
+		}
+		prefixMatches.addAll(matches);
+		return prefixMatches.size() > limit ? prefixMatches.subList(0, limit) : prefixMatches;
+	}
+
+	private static long[] grams(String text) {
+		long[] grams = new long[Math.max(0, text.length() - GRAM + 1)];
+		for (int i = 0; i < grams.length; i++) {
+			grams[i] = gram(text, i);
+		}
+		return Arrays.stream(grams).distinct().toArray();
+	}
+
+	private static long gram(String text, int index) {
+		return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+	}
+
+	private static final class Postings {
+
+		private int[] ids = new int[4];
+		private int size;
+
+		void add(int id) {
+			// ids are added in increasing order, so a repeated gram in the same
+			// prompt only needs to be compared to the last one
+			if (size > 0 && ids[size - 1] == id) {
+				return;
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+	}
+}
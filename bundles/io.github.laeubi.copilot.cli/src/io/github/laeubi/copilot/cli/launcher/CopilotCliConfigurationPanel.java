@@ -12,12 +12,25 @@
 package io.github.laeubi.copilot.cli.launcher;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.jface.bindings.keys.KeyStroke;
+import org.eclipse.jface.fieldassist.ComboContentAdapter;
+import org.eclipse.jface.fieldassist.ContentProposal;
+import org.eclipse.jface.fieldassist.ContentProposalAdapter;
+import org.eclipse.jface.fieldassist.IContentProposal;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.swt.SWT;
@@ -28,10 +41,11 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.DirectoryDialog;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
-import org.eclipse.swt.widgets.Text;
 import org.eclipse.terminal.view.core.ITerminalsConnectorConstants;
 import org.eclipse.terminal.view.ui.launcher.AbstractExtendedConfigurationPanel;
 import org.eclipse.terminal.view.ui.launcher.IConfigurationPanelContainer;
@@ -39,14 +53,33 @@ import org.eclipse.ui.ISelectionService;
 import org.eclipse.ui.PlatformUI;
 import org.osgi.framework.Bundle;
 
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.UiWatchdog;
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+
 /**
  * Configuration panel for Copilot CLI terminal.
+ *
+ * The working directory is validated asynchronously and debounced, backed by
+ * a {@link DirectoryCache}, so typing a path on a slow mount never blocks the
+ * dialog. The same cache feeds the path completion, and the drop down offers
+ * the working directories of the open sessions.
  */
 public class CopilotCliConfigurationPanel extends AbstractExtendedConfigurationPanel {
 
-	private Text workingDirText;
+	private static final int VALIDATION_DELAY_MS = 250;
+
+	private static final int MAX_PROPOSALS = 100;
+
+	private Combo workingDirText;
 	private IResource selectedResource;
 
+	private DirectoryCache directoryCache;
+	private final Runnable validation = () -> UiWatchdog.run("CopilotCliConfigurationPanel.validateWorkingDir",
+			this::validateWorkingDir);
+	private String validatedDir;
+	private boolean validDir;
+
 	/**
 	 * Constructor.
 	 */
@@ -56,6 +89,14 @@ public class CopilotCliConfigurationPanel extends AbstractExtendedConfigurationP
 
 	@Override
 	public void setupPanel(Composite parent) {
+		UiWatchdog.run("CopilotCliConfigurationPanel.setupPanel", () -> createControls(parent));
+	}
+
+	private void createControls(Composite parent) {
+		Activator activator = Activator.getDefault();
+		if (directoryCache == null && activator != null) {
+			directoryCache = new DirectoryCache(activator.getExecutor().io());
+		}
 		Composite panel = new Composite(parent, SWT.NONE);
 		panel.setLayout(new GridLayout());
 		panel.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
@@ -78,16 +119,19 @@ public class CopilotCliConfigurationPanel extends AbstractExtendedConfigurationP
 		workingDirLabel.setText("Working directory:");
 		workingDirLabel.setLayoutData(new GridData(SWT.BEGINNING, SWT.CENTER, false, false));
 
-		workingDirText = new Text(workingDirPanel, SWT.SINGLE | SWT.BORDER);
+		workingDirText = new Combo(workingDirPanel, SWT.DROP_DOWN | SWT.BORDER);
 		workingDirText.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+		workingDirText.setItems(getRecentRoots());
 		workingDirText.addModifyListener(new ModifyListener() {
 			@Override
 			public void modifyText(ModifyEvent e) {
-				if (getContainer() != null) {
-					getContainer().validate();
-				}
+				scheduleValidation();
 			}
 		});
+		workingDirText.addDisposeListener(e -> e.display.timerExec(-1, validation));
+		ContentProposalAdapter proposalAdapter = new ContentProposalAdapter(workingDirText, new ComboContentAdapter(),
+				this::getProposals, KeyStroke.getInstance(SWT.MOD1, ' '), new char[] { '/', File.separatorChar });
+		proposalAdapter.setProposalAcceptanceStyle(ContentProposalAdapter.PROPOSAL_REPLACE);
 
 		Button browseButton = new Button(workingDirPanel, SWT.PUSH);
 		browseButton.setText("Browse...");
@@ -102,6 +146,9 @@ public class CopilotCliConfigurationPanel extends AbstractExtendedConfigurationP
 				}
 				String selectedDir = dialog.open();
 				if (selectedDir != null) {
+					if (directoryCache != null) {
+						directoryCache.invalidate(Path.of(selectedDir));
+					}
 					workingDirText.setText(selectedDir);
 				}
 			}
@@ -136,6 +183,110 @@ public class CopilotCliConfigurationPanel extends AbstractExtendedConfigurationP
 		setControl(panel);
 	}
 
+	/**
+	 * @return the distinct working directories of the open sessions, most
+	 *         recently started first
+	 */
+	private static String[] getRecentRoots() {
+		Activator activator = Activator.getDefault();
+		if (activator == null) {
+			// the plug-in is stopping
+			return new String[0];
+		}
+		Set<String> roots = new LinkedHashSet<>();
+		List<CopilotCliConnector> connectors = activator.getResourceTracker().getConnectors();
+		for (int i = connectors.size() - 1; i >= 0; i--) {
+			String workingDir = connectors.get(i).getWorkingDir();
+			if (workingDir != null) {
+				roots.add(workingDir);
+			}
+		}
+		return roots.toArray(String[]::new);
+	}
+
+	/**
+	 * Restarts the debounce timer, until the check is done the panel is not
+	 * valid
+	 */
+	private void scheduleValidation() {
+		Display display = workingDirText.getDisplay();
+		display.timerExec(-1, validation);
+		display.timerExec(VALIDATION_DELAY_MS, validation);
+		if (getContainer() != null) {
+			getContainer().validate();
+		}
+	}
+
+	private void validateWorkingDir() {
+		if (workingDirText == null || workingDirText.isDisposed()) {
+			return;
+		}
+		String workingDir = workingDirText.getText().trim();
+		if (workingDir.isEmpty()) {
+			setValidated(workingDir, true);
+			return;
+		}
+		Path path;
+		try {
+			path = Path.of(workingDir);
+		} catch (InvalidPathException e) {
+			setValidated(workingDir, false);
+			return;
+		}
+		Display display = workingDirText.getDisplay();
+		// without a cache, as while the plug-in is stopping, the disk is still never touched here
+		CompletableFuture<Boolean> directory = directoryCache == null
+				? CompletableFuture.supplyAsync(() -> Files.isDirectory(path))
+				: directoryCache.list(path).thenApply(DirectoryCache.Listing::directory);
+		directory.whenCompleteAsync((isDirectory, error) -> {
+			if (!workingDirText.isDisposed() && workingDir.equals(workingDirText.getText().trim())) {
+				setValidated(workingDir, error == null && isDirectory);
+			}
+		}, display::asyncExec);
+		// read the parent as well, so completing the current segment is instant
+		Path parent = path.getParent();
+		if (parent != null && directoryCache != null) {
+			directoryCache.list(parent);
+		}
+	}
+
+	private void setValidated(String workingDir, boolean valid) {
+		validatedDir = workingDir;
+		validDir = valid;
+		if (getContainer() != null) {
+			getContainer().validate();
+		}
+	}
+
+	/**
+	 * Proposes the cached subdirectories matching the last path segment. If the
+	 * parent is not cached yet it is read now and proposed with the next key
+	 * stroke.
+	 */
+	private IContentProposal[] getProposals(String contents, int position) {
+		String prefix = contents.substring(0, Math.min(position, contents.length()));
+		int separator = Math.max(prefix.lastIndexOf('/'), prefix.lastIndexOf(File.separatorChar));
+		if (separator < 0 || directoryCache == null) {
+			return new IContentProposal[0];
+		}
+		String parentText = prefix.substring(0, separator + 1);
+		String namePrefix = prefix.substring(separator + 1).toLowerCase(Locale.ROOT);
+		Path parent;
+		try {
+			parent = Path.of(parentText);
+		} catch (InvalidPathException e) {
+			return new IContentProposal[0];
+		}
+		DirectoryCache.Listing listing = directoryCache.getNow(parent);
+		if (listing == null) {
+			directoryCache.list(parent);
+			return new IContentProposal[0];
+		}
+		return listing.subdirectories().stream().filter(name -> name.toLowerCase(Locale.ROOT).startsWith(namePrefix))
+				.limit(MAX_PROPOSALS).map(name -> new ContentProposal(parentText + name, name, null))
+				.toArray(IContentProposal[]::new);
+	}
+
 	/**
 	 * Returns the IResource from the current selection
 	 */
@@ -172,6 +323,10 @@ public class CopilotCliConfigurationPanel extends AbstractExtendedConfigurationP
 
 	@Override
 	public void extractData(Map<String, Object> data) {
+		UiWatchdog.run("CopilotCliConfigurationPanel.extractData", () -> storeData(data));
+	}
+
+	private void storeData(Map<String, Object> data) {
 		if (data == null) {
 			return;
 		}
@@ -211,11 +366,15 @@ public class CopilotCliConfigurationPanel extends AbstractExtendedConfigurationP
 
 	@Override
 	public boolean isValid() {
-		// Validate working directory if specified
+		// Validate working directory if specified, the check itself runs in the background
 		String workingDir = workingDirText.getText().trim();
 		if (!workingDir.isEmpty()) {
-			File dir = new File(workingDir);
-			if (!dir.exists() || !dir.isDirectory()) {
+			if (!workingDir.equals(validatedDir)) {
+				// still checking
+				setMessage(null, NONE);
+				return false;
+			}
+			if (!validDir) {
 				setMessage("Working directory does not exist or is not a directory", INFORMATION);
 				return false;
 			}
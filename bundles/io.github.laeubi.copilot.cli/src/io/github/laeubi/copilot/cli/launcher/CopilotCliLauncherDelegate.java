@@ -11,13 +11,21 @@
  *******************************************************************************/
 package io.github.laeubi.copilot.cli.launcher;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.cdt.utils.pty.PTY;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.terminal.connector.ISettingsStore;
 import org.eclipse.terminal.connector.ITerminalConnector;
 import org.eclipse.terminal.connector.InMemorySettingsStore;
@@ -29,13 +37,35 @@ import org.eclipse.terminal.view.core.ITerminalsConnectorConstants;
 import org.eclipse.terminal.view.ui.launcher.AbstractLauncherDelegate;
 import org.eclipse.terminal.view.ui.launcher.IConfigurationPanel;
 import org.eclipse.terminal.view.ui.launcher.IConfigurationPanelContainer;
+import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.WorkbenchEncoding;
 
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.UiWatchdog;
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.preferences.PreferenceConstants;
+
 /**
  * Copilot CLI launcher delegate implementation.
  */
 public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 
+	/**
+	 * Property for the id of a previous copilot session to resume
+	 */
+	public static final String PROP_RESUME_ID = "io.github.laeubi.copilot.cli.resumeId";
+
+	/**
+	 * Property to only spawn the copilot process once the terminal is used
+	 */
+	public static final String PROP_DEFERRED = "io.github.laeubi.copilot.cli.deferred";
+
+	/**
+	 * Property for the MCP configuration of the context server, prepared before
+	 * the terminal is opened
+	 */
+	private static final String PROP_MCP_CONFIG = "io.github.laeubi.copilot.cli.mcpConfig";
+
 	@Override
 	public boolean needsUserConfiguration() {
 		return true;
@@ -57,12 +87,14 @@ public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 		}
 		properties.put(ITerminalsConnectorConstants.PROP_TITLE, terminalTitle);
 
-		// Set encoding - default to UTF-8 for Copilot CLI
-		if (!properties.containsKey(ITerminalsConnectorConstants.PROP_ENCODING)) {
-			String encoding = "UTF-8";
-			if (encoding != null && !"".equals(encoding)) {
-				properties.put(ITerminalsConnectorConstants.PROP_ENCODING, encoding);
+		// Set encoding - default to UTF-8 for Copilot CLI, also used if the
+		// requested encoding is not supported by this VM
+		Object encoding = properties.get(ITerminalsConnectorConstants.PROP_ENCODING);
+		if (!(encoding instanceof String name) || !isSupportedCharset(name)) {
+			if (encoding != null) {
+				ILog.get().warn("Encoding '" + encoding + "' is not supported, using UTF-8 for Copilot CLI");
 			}
+			properties.put(ITerminalsConnectorConstants.PROP_ENCODING, StandardCharsets.UTF_8.name());
 		}
 
 		// Force a new terminal tab each time
@@ -70,6 +102,25 @@ public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 			properties.put(ITerminalsConnectorConstants.PROP_FORCE_NEW, Boolean.TRUE);
 		}
 
+		Activator activator = Activator.getDefault();
+		String workingDir = (String) properties.get(ITerminalsConnectorConstants.PROP_PROCESS_WORKING_DIR);
+		if (activator == null || workingDir == null
+				|| !activator.getPreferenceStore().getBoolean(PreferenceConstants.CONTEXT_SERVER)) {
+			return openConsole(properties);
+		}
+		// starting the context server binds a socket and writes a file, so it never
+		// happens on the display thread, the connector is created once it is done
+		Display display = PlatformUI.getWorkbench().getDisplay();
+		return CompletableFuture.supplyAsync(() -> getContextServerConfig(activator, workingDir),
+				activator.getExecutor().io()).thenComposeAsync(config -> {
+					if (config != null) {
+						properties.put(PROP_MCP_CONFIG, config);
+					}
+					return openConsole(properties);
+				}, display::asyncExec);
+	}
+
+	private CompletableFuture<?> openConsole(Map<String, Object> properties) {
 		try {
 			return getTerminalService().openConsole(properties);
 		} catch (RuntimeException e) {
@@ -77,8 +128,22 @@ public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 		}
 	}
 
+	private static boolean isSupportedCharset(String name) {
+		try {
+			return !name.isBlank() && Charset.isSupported(name);
+		} catch (IllegalCharsetNameException e) {
+			return false;
+		}
+	}
+
 	@Override
 	public ITerminalConnector createTerminalConnector(Map<String, Object> properties) throws CoreException {
+		try (UiWatchdog.Scope scope = UiWatchdog.enter("CopilotCliLauncherDelegate.createTerminalConnector")) {
+			return doCreateTerminalConnector(properties);
+		}
+	}
+
+	private ITerminalConnector doCreateTerminalConnector(Map<String, Object> properties) {
 		Assert.isNotNull(properties);
 
 		// Check for the terminal connector id
@@ -127,6 +192,8 @@ public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 		ITerminalServiceOutputStreamMonitorListener[] stderrListeners = (ITerminalServiceOutputStreamMonitorListener[]) properties
 				.get(ITerminalsConnectorConstants.PROP_STDERR_LISTENERS);
 		String workingDir = (String) properties.get(ITerminalsConnectorConstants.PROP_PROCESS_WORKING_DIR);
+		String arguments = (String) properties.get(ITerminalsConnectorConstants.PROP_PROCESS_ARGS);
+		String resumeId = (String) properties.get(PROP_RESUME_ID);
 
 		String[] envp = null;
 		if (properties.containsKey(ITerminalsConnectorConstants.PROP_PROCESS_ENVIRONMENT)
@@ -143,7 +210,8 @@ public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 		// Construct the process settings
 		ProcessSettings processSettings = new ProcessSettings();
 		processSettings.setImage(image);
-		processSettings.setArguments(null); // No arguments for copilot CLI
+		processSettings.setArguments(
+				getCommandLineArguments(arguments, resumeId, (Path) properties.get(PROP_MCP_CONFIG)));
 		processSettings.setProcess(process);
 		processSettings.setPTY(pty);
 		processSettings.setLocalEcho(localEcho);
@@ -161,6 +229,15 @@ public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 		// And save the settings to the store
 		processSettings.save(store);
 
+		// Remember the session details needed to restore it later
+		putIfNotNull(store, CopilotCliConnector.KEY_TITLE,
+				(String) properties.get(ITerminalsConnectorConstants.PROP_TITLE));
+		putIfNotNull(store, CopilotCliConnector.KEY_ARGUMENTS, arguments);
+		putIfNotNull(store, CopilotCliConnector.KEY_RESUME_ID, resumeId);
+		if (Boolean.TRUE.equals(properties.get(PROP_DEFERRED))) {
+			store.put(CopilotCliConnector.KEY_DEFERRED, Boolean.TRUE.toString());
+		}
+
 		// Construct the terminal connector instance
 		ITerminalConnector connector = TerminalConnectorExtension.makeTerminalConnector(connectorId);
 		// Apply default settings
@@ -169,4 +246,46 @@ public class CopilotCliLauncherDelegate extends AbstractLauncherDelegate {
 		connector.load(store);
 		return connector;
 	}
+
+	private static String getCommandLineArguments(String arguments, String resumeId, Path mcpConfig) {
+		StringBuilder commandLine = new StringBuilder();
+		if (arguments != null && !arguments.isBlank()) {
+			commandLine.append(arguments.trim());
+		}
+		if (resumeId != null && !resumeId.isBlank()) {
+			if (commandLine.length() > 0) {
+				commandLine.append(' ');
+			}
+			commandLine.append("--resume ").append(resumeId.trim());
+		}
+		if (mcpConfig != null) {
+			if (commandLine.length() > 0) {
+				commandLine.append(' ');
+			}
+			String config = "@" + mcpConfig;
+			commandLine.append("--additional-mcp-config ")
+					.append(config.indexOf(' ') >= 0 ? '"' + config + '"' : config);
+		}
+		return commandLine.length() > 0 ? commandLine.toString() : null;
+	}
+
+	/**
+	 * Returns the MCP configuration registering the workspace context server for
+	 * the session, starting the server if needed, or <code>null</code> if it is
+	 * not available
+	 */
+	private static Path getContextServerConfig(Activator activator, String workingDir) {
+		try {
+			return activator.getContextServer().getConfigFile(Path.of(workingDir));
+		} catch (IOException | InvalidPathException e) {
+			ILog.get().warn("Can't register the workspace context server with Copilot", e);
+			return null;
+		}
+	}
+
+	private static void putIfNotNull(ISettingsStore store, String key, String value) {
+		if (value != null) {
+			store.put(key, value);
+		}
+	}
 }
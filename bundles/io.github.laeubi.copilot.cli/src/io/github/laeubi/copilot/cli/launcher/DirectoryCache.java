@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.launcher;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches whether directories exist and which subdirectories they have, so the
+ * configuration panel never touches the file system on the UI thread.
+ *
+ * Listings are read on the I/O pool, concurrent requests for the same
+ * directory share one read, and a listing of an existing directory is reused
+ * for a short time. Missing directories are not remembered, so a directory
+ * that is created meanwhile is found with the next request.
+ */
+class DirectoryCache {
+
+	private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private static final int MAX_ENTRIES = 256;
+
+	private final Executor executor;
+
+	private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * The result of reading a directory
+	 *
+	 * @param directory      <code>true</code> if the path is an existing
+	 *                       directory
+	 * @param subdirectories the names of the subdirectories, sorted
+	 */
+	record Listing(boolean directory, List<String> subdirectories) {
+	}
+
+	private record Entry(CompletableFuture<Listing> listing, long created) {
+	}
+
+	DirectoryCache(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the listing of the given directory, reading it in the background
+	 * if it is not cached.
+	 */
+	CompletableFuture<Listing> list(Path directory) {
+		long now = System.nanoTime();
+		Entry entry = entries.compute(directory, (path, existing) -> {
+			if (existing != null && (!existing.listing().isDone()
+					|| now - existing.created() < TTL_NANOS && isDirectory(existing))) {
+				return existing;
+			}
+			return new Entry(read(path), now);
+		});
+		if (entries.size() > MAX_ENTRIES) {
+			entries.entrySet().removeIf(e -> now - e.getValue().created() >= TTL_NANOS);
+		}
+		return entry.listing();
+	}
+
+	/**
+	 * @return the cached listing of the directory or <code>null</code> if it is
+	 *         not read yet or does not denote an existing directory
+	 */
+	Listing getNow(Path directory) {
+		Entry entry = entries.get(directory);
+		if (entry == null || !isDirectory(entry)) {
+			return null;
+		}
+		return entry.listing().join();
+	}
+
+	/**
+	 * Forgets the listings of the given directory and its parent, for example
+	 * after the user picked or created it in a dialog.
+	 */
+	void invalidate(Path directory) {
+		entries.remove(directory);
+		Path parent = directory.getParent();
+		if (parent != null) {
+			entries.remove(parent);
+		}
+	}
+
+	private static boolean isDirectory(Entry entry) {
+		CompletableFuture<Listing> listing = entry.listing();
+		return listing.isDone() && !listing.isCompletedExceptionally() && listing.join().directory();
+	}
+
+	private CompletableFuture<Listing> read(Path directory) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				if (!Files.isDirectory(directory)) {
+					return new Listing(false, List.of());
+				}
+				List<String> names = new ArrayList<>();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isDirectory)) {
+					for (Path child : stream) {
+						names.add(child.getFileName().toString());
+					}
+				} catch (IOException e) {
+					// an unreadable directory still exists
+				}
+				names.sort(String.CASE_INSENSITIVE_ORDER);
+				return new Listing(true, names);
+			}, executor);
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+}
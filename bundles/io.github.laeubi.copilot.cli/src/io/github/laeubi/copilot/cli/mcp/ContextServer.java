@@ -0,0 +1,430 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.mcp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
+
+import io.github.laeubi.copilot.cli.BackgroundExecutor;
+
+/**
+ * Local context server answering questions of the copilot CLI about the
+ * workspace, speaking the Model Context Protocol over HTTP.
+ *
+ * The server only listens on the loopback interface. Each working directory
+ * gets its own random bearer token, which also scopes the tools to that
+ * directory. The CLI learns about the server through an MCP configuration
+ * file passed with <code>--additional-mcp-config</code>, which is only
+ * readable by the current user, through POSIX permissions or an access control
+ * list. The server is started with the first session
+ * and implements just enough of HTTP for the single JSON request and response
+ * of each call.
+ */
+public class ContextServer {
+
+	private static final String ENDPOINT = "/mcp";
+
+	private static final String SERVER_NAME = "eclipse-workspace";
+
+	private static final String PROTOCOL_VERSION = "2025-03-26";
+
+	private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+	private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+	private static final int SOCKET_TIMEOUT_MS = 30000;
+
+	private static final int MAX_CLIENTS = 4;
+
+	private static final int MAX_WAITING_CLIENTS = 16;
+
+	private final Path configDirectory;
+
+	private final BackgroundExecutor executor;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private final Map<String, Path> scopes = new ConcurrentHashMap<>();
+
+	private final Map<Path, Path> configFiles = new ConcurrentHashMap<>();
+
+	private ServerSocket serverSocket;
+
+	/**
+	 * Serves the connections, its own pool so slow clients never hold the
+	 * shared I/O pool
+	 */
+	private ExecutorService clients;
+
+	/**
+	 * @param configDirectory the directory to write the MCP configuration files
+	 *                        to
+	 * @param executor        the executor to start the accepting thread and the
+	 *                        client pool with
+	 */
+	public ContextServer(Path configDirectory, BackgroundExecutor executor) {
+		this.configDirectory = configDirectory;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the MCP configuration file registering this server for sessions
+	 * in the given working directory, starting the server if needed.
+	 */
+	public synchronized Path getConfigFile(Path workingDir) throws IOException {
+		Path scope = workingDir.toAbsolutePath().normalize();
+		if (serverSocket == null) {
+			serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			clients = executor.newPool("context-server", MAX_CLIENTS, MAX_WAITING_CLIENTS);
+			ServerSocket socket = serverSocket;
+			Executor pool = clients;
+			executor.startDaemon("copilot-context-server", () -> accept(socket, pool));
+		}
+		Path existing = configFiles.get(scope);
+		if (existing != null && Files.isRegularFile(existing)) {
+			return existing;
+		}
+		byte[] secret = new byte[32];
+		random.nextBytes(secret);
+		String token = HexFormat.of().formatHex(secret);
+		Map<String, Object> server = new LinkedHashMap<>();
+		server.put("type", "http");
+		server.put("url", "http://127.0.0.1:" + serverSocket.getLocalPort() + ENDPOINT);
+		server.put("headers", Map.of("Authorization", "Bearer " + token));
+		server.put("tools", List.of("*"));
+		String config = Json.write(Map.of("mcpServers", Map.of(SERVER_NAME, server)));
+		Files.createDirectories(configDirectory);
+		Path file = configDirectory.resolve(token.substring(0, 16) + ".json");
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			Files.createFile(file, PosixFilePermissions
+					.asFileAttribute(Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+		} else {
+			Files.createFile(file);
+			restrictToOwner(file);
+		}
+		Files.writeString(file, config, StandardCharsets.UTF_8);
+		scopes.put(token, scope);
+		configFiles.put(scope, file);
+		return file;
+	}
+
+	/**
+	 * Replaces the inherited access control list of the still empty file by
+	 * one that only grants access to its owner, used on Windows. The file is
+	 * deleted if that fails, so the token is never written to a file others
+	 * can read.
+	 */
+	private static void restrictToOwner(Path file) throws IOException {
+		AclFileAttributeView view = Files.getFileAttributeView(file, AclFileAttributeView.class);
+		if (view == null) {
+			// neither POSIX permissions nor access control lists
+			return;
+		}
+		try {
+			AclEntry owner = AclEntry.newBuilder().setType(AclEntryType.ALLOW).setPrincipal(view.getOwner())
+					.setPermissions(AclEntryPermission.READ_DATA, AclEntryPermission.WRITE_DATA,
+							AclEntryPermission.APPEND_DATA, AclEntryPermission.READ_ATTRIBUTES,
+							AclEntryPermission.WRITE_ATTRIBUTES, AclEntryPermission.READ_NAMED_ATTRS,
+							AclEntryPermission.WRITE_NAMED_ATTRS, AclEntryPermission.READ_ACL,
+							AclEntryPermission.WRITE_ACL, AclEntryPermission.DELETE, AclEntryPermission.SYNCHRONIZE)
+					.build();
+			view.setAcl(List.of(owner));
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops the server and deletes all configuration files
+	 */
+	public synchronized void stop() {
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {
+				// closed anyways
+			}
+			serverSocket = null;
+		}
+		if (clients != null) {
+			clients.shutdownNow();
+			clients = null;
+		}
+		for (Path file : configFiles.values()) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				// nothing we can do then
+			}
+		}
+		configFiles.clear();
+		scopes.clear();
+	}
+
+	private void accept(ServerSocket socket, Executor pool) {
+		while (!socket.isClosed()) {
+			try {
+				Socket client = socket.accept();
+				try {
+					pool.execute(() -> serve(client));
+				} catch (RejectedExecutionException e) {
+					// too many connections or stopped, the client has to retry
+					client.close();
+				}
+			} catch (SocketException e) {
+				// the server was stopped
+			} catch (IOException | RuntimeException e) {
+				ILog.get().warn("Copilot context server failed to accept a connection", e);
+			}
+		}
+	}
+
+	private void serve(Socket client) {
+		try (Socket socket = client) {
+			socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = socket.getOutputStream();
+			List<String> head = readHead(in);
+			if (head.isEmpty()) {
+				return;
+			}
+			String[] requestLine = head.get(0).split(" ");
+			Map<String, String> headers = new LinkedHashMap<>();
+			for (String line : head.subList(1, head.size())) {
+				int colon = line.indexOf(':');
+				if (colon > 0) {
+					headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+				}
+			}
+			if (requestLine.length < 2 || !ENDPOINT.equals(requestLine[1].split("\\?")[0])) {
+				respond(out, 404, "Not Found", null);
+				return;
+			}
+			if (headers.containsKey("origin")) {
+				// never answer requests issued by a web page
+				respond(out, 403, "Forbidden", null);
+				return;
+			}
+			Path scope = authenticate(headers.get("authorization"));
+			if (scope == null) {
+				respond(out, 401, "Unauthorized", null);
+				return;
+			}
+			if (!"POST".equals(requestLine[0])) {
+				respond(out, 405, "Method Not Allowed", null);
+				return;
+			}
+			int length;
+			try {
+				length = Integer.parseInt(headers.getOrDefault("content-length", "-1"));
+			} catch (NumberFormatException e) {
+				length = -1;
+			}
+			if (length < 0 || length > MAX_BODY_BYTES) {
+				respond(out, 413, "Payload Too Large", null);
+				return;
+			}
+			String body = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+			Object response = handle(body, scope);
+			if (response == null) {
+				respond(out, 202, "Accepted", null);
+			} else {
+				respond(out, 200, "OK", Json.write(response));
+			}
+		} catch (IOException e) {
+			// the client went away
+		}
+	}
+
+	private Path authenticate(String authorization) {
+		if (authorization == null || !authorization.startsWith("Bearer ")) {
+			return null;
+		}
+		byte[] given = authorization.substring(7).trim().getBytes(StandardCharsets.US_ASCII);
+		for (Map.Entry<String, Path> entry : scopes.entrySet()) {
+			if (MessageDigest.isEqual(given, entry.getKey().getBytes(StandardCharsets.US_ASCII))) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Handles a JSON-RPC message or batch, returns <code>null</code> if there
+	 * is nothing to answer
+	 */
+	private Object handle(String body, Path scope) {
+		Object message;
+		try {
+			message = Json.parse(body);
+		} catch (IllegalArgumentException e) {
+			return error(null, -32700, "Parse error: " + e.getMessage());
+		}
+		if (message instanceof List<?> batch) {
+			List<Object> responses = new ArrayList<>();
+			for (Object element : batch) {
+				Object response = handleMessage(element, scope);
+				if (response != null) {
+					responses.add(response);
+				}
+			}
+			return responses.isEmpty() ? null : responses;
+		}
+		return handleMessage(message, scope);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object handleMessage(Object message, Path scope) {
+		if (!(message instanceof Map<?, ?> request) || !(request.get("method") instanceof String method)) {
+			// a response or something invalid, nothing to answer
+			return message instanceof Map<?, ?> map && map.containsKey("id") && !map.containsKey("result")
+					&& !map.containsKey("error") ? error(map.get("id"), -32600, "Invalid request") : null;
+		}
+		Object id = request.get("id");
+		if (id == null) {
+			// notifications like notifications/initialized need no answer
+			return null;
+		}
+		Map<String, Object> params = request.get("params") instanceof Map<?, ?> p ? (Map<String, Object>) p
+				: Map.of();
+		switch (method) {
+		case "initialize": {
+			Map<String, Object> result = new LinkedHashMap<>();
+			Object version = params.get("protocolVersion");
+			result.put("protocolVersion", version instanceof String ? version : PROTOCOL_VERSION);
+			result.put("capabilities", Map.of("tools", Map.of()));
+			result.put("serverInfo", Map.of("name", SERVER_NAME, "version", "1.0.0"));
+			result.put("instructions", "Answers questions about the Eclipse workspace from its in-memory "
+					+ "indexes. Prefer these tools over searching the file system.");
+			return result(id, result);
+		}
+		case "ping":
+			return result(id, Map.of());
+		case "tools/list":
+			return result(id, Map.of("tools", WorkspaceTools.getTools()));
+		case "tools/call": {
+			Object name = params.get("name");
+			Map<String, Object> arguments = params.get("arguments") instanceof Map<?, ?> a
+					? (Map<String, Object>) a
+					: Map.of();
+			String text;
+			boolean isError = false;
+			try {
+				text = WorkspaceTools.call(String.valueOf(name), arguments, scope);
+			} catch (IllegalArgumentException | CoreException e) {
+				text = e.getMessage();
+				isError = true;
+			} catch (RuntimeException e) {
+				ILog.get().error("Copilot context server tool " + name + " failed", e);
+				text = "Internal error: " + e;
+				isError = true;
+			}
+			return result(id, Map.of("content", List.of(Map.of("type", "text", "text", text)), "isError", isError));
+		}
+		default:
+			return error(id, -32601, "Method not found: " + method);
+		}
+	}
+
+	private static Map<String, Object> result(Object id, Object result) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("jsonrpc", "2.0");
+		response.put("id", id);
+		response.put("result", result);
+		return response;
+	}
+
+	private static Map<String, Object> error(Object id, int code, String message) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("jsonrpc", "2.0");
+		response.put("id", id);
+		response.put("error", Map.of("code", code, "message", message));
+		return response;
+	}
+
+	/**
+	 * Reads the request line and headers
+	 */
+	private static List<String> readHead(InputStream in) throws IOException {
+		List<String> lines = new ArrayList<>();
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int total = 0;
+		int b;
+		while ((b = in.read()) >= 0) {
+			if (++total > MAX_HEADER_BYTES) {
+				throw new IOException("Request header too large");
+			}
+			if (b == '\n') {
+				String text = line.toString(StandardCharsets.ISO_8859_1);
+				if (text.endsWith("\r")) {
+					text = text.substring(0, text.length() - 1);
+				}
+				if (text.isEmpty()) {
+					return lines;
+				}
+				lines.add(text);
+				line.reset();
+			} else {
+				line.write(b);
+			}
+		}
+		return List.of();
+	}
+
+	private static void respond(OutputStream out, int status, String reason, String json) throws IOException {
+		byte[] body = json == null ? new byte[0] : json.getBytes(StandardCharsets.UTF_8);
+		StringBuilder head = new StringBuilder();
+		head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+		if (json != null) {
+			head.append("Content-Type: application/json\r\n");
+		}
+		head.append("Content-Length: ").append(body.length).append("\r\n");
+		head.append("Connection: close\r\n\r\n");
+		out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+		out.write(body);
+		out.flush();
+	}
+}
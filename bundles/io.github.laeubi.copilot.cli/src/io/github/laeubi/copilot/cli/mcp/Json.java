@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.mcp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader and writer for the messages of the context server.
+ *
+ * Objects are read as {@link Map}, arrays as {@link List}, numbers as
+ * {@link Long} or {@link Double}. Writing accepts the same types plus any other
+ * {@link Number} and {@link CharSequence}.
+ */
+final class Json {
+
+	/**
+	 * Objects and arrays nested deeper are rejected, the reader is recursive
+	 */
+	static final int MAX_DEPTH = 64;
+
+	private final String text;
+
+	private int position;
+
+	private int depth;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Parses the given JSON text
+	 *
+	 * @throws IllegalArgumentException if the text is not valid JSON
+	 */
+	static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.readValue();
+		json.skipWhitespace();
+		if (json.position != text.length()) {
+			throw json.error("Unexpected trailing content");
+		}
+		return value;
+	}
+
+	/**
+	 * @return the given value as JSON text
+	 */
+	static String write(Object value) {
+		StringBuilder builder = new StringBuilder();
+		write(value, builder);
+		return builder.toString();
+	}
+
+	private Object readValue() {
+		skipWhitespace();
+		if (position >= text.length()) {
+			throw error("Unexpected end of input");
+		}
+		char c = text.charAt(position);
+		switch (c) {
+		case '{':
+			return readObject();
+		case '[':
+			return readArray();
+		case '"':
+			return readString();
+		case 't':
+			return readLiteral("true", Boolean.TRUE);
+		case 'f':
+			return readLiteral("false", Boolean.FALSE);
+		case 'n':
+			return readLiteral("null", null);
+		default:
+			if (c == '-' || (c >= '0' && c <= '9')) {
+				return readNumber();
+			}
+			throw error("Unexpected character '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> readObject() {
+		enter();
+		Map<String, Object> object = new LinkedHashMap<>();
+		position++;
+		skipWhitespace();
+		if (consume('}')) {
+			depth--;
+			return object;
+		}
+		do {
+			skipWhitespace();
+			if (position >= text.length() || text.charAt(position) != '"') {
+				throw error("Expected a member name");
+			}
+			String name = readString();
+			skipWhitespace();
+			if (!consume(':')) {
+				throw error("Expected ':'");
+			}
+			object.put(name, readValue());
+			skipWhitespace();
+		} while (consume(','));
+		if (!consume('}')) {
+			throw error("Expected ',' or '}'");
+		}
+		depth--;
+		return object;
+	}
+
+	private List<Object> readArray() {
+		enter();
+		List<Object> array = new ArrayList<>();
+		position++;
+		skipWhitespace();
+		if (consume(']')) {
+			depth--;
+			return array;
+		}
+		do {
+			array.add(readValue());
+			skipWhitespace();
+		} while (consume(','));
+		if (!consume(']')) {
+			throw error("Expected ',' or ']'");
+		}
+		depth--;
+		return array;
+	}
+
+	private void enter() {
+		if (++depth > MAX_DEPTH) {
+			throw error("Nested deeper than " + MAX_DEPTH + " levels");
+		}
+	}
+
+	private String readString() {
+		position++;
+		StringBuilder builder = new StringBuilder();
+		while (position < text.length()) {
+			char c = text.charAt(position++);
+			if (c == '"') {
+				return builder.toString();
+			}
+			if (c != '\\') {
+				builder.append(c);
+				continue;
+			}
+			if (position >= text.length()) {
+				break;
+			}
+			char escape = text.charAt(position++);
+			switch (escape) {
+			case 'b' -> builder.append('\b');
+			case 'f' -> builder.append('\f');
+			case 'n' -> builder.append('\n');
+			case 'r' -> builder.append('\r');
+			case 't' -> builder.append('\t');
+			case 'u' -> {
+				if (position + 4 > text.length()) {
+					throw error("Invalid unicode escape");
+				}
+				try {
+					builder.append((char) Integer.parseInt(text, position, position + 4, 16));
+				} catch (NumberFormatException e) {
+					throw error("Invalid unicode escape");
+				}
+				position += 4;
+			}
+			default -> builder.append(escape);
+			}
+		}
+		throw error("Unterminated string");
+	}
+
+	private Number readNumber() {
+		int start = position;
+		boolean decimal = false;
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c == '.' || c == 'e' || c == 'E') {
+				decimal = true;
+			} else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+				break;
+			}
+			position++;
+		}
+		String number = text.substring(start, position);
+		try {
+			return decimal ? (Number) Double.valueOf(number) : (Number) Long.valueOf(number);
+		} catch (NumberFormatException e) {
+			throw error("Invalid number " + number);
+		}
+	}
+
+	private Object readLiteral(String literal, Object value) {
+		if (!text.startsWith(literal, position)) {
+			throw error("Unexpected token");
+		}
+		position += literal.length();
+		return value;
+	}
+
+	private boolean consume(char c) {
+		if (position < text.length() && text.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + position);
+	}
+
+	private static void write(Object value, StringBuilder builder) {
+		if (value == null) {
+			builder.append("null");
+		} else if (value instanceof CharSequence string) {
+			writeString(string, builder);
+		} else if (value instanceof Boolean || value instanceof Long || value instanceof Integer) {
+			builder.append(value);
+		} else if (value instanceof Number number) {
+			double d = number.doubleValue();
+			builder.append(Double.isFinite(d) ? number.toString() : "null");
+		} else if (value instanceof Map<?, ?> map) {
+			builder.append('{');
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				if (!first) {
+					builder.append(',');
+				}
+				first = false;
+				writeString(String.valueOf(entry.getKey()), builder);
+				builder.append(':');
+				write(entry.getValue(), builder);
+			}
+			builder.append('}');
+		} else if (value instanceof Iterable<?> iterable) {
+			builder.append('[');
+			boolean first = true;
+			for (Object element : iterable) {
+				if (!first) {
+					builder.append(',');
+				}
+				first = false;
+				write(element, builder);
+			}
+			builder.append(']');
+		} else {
+			writeString(value.toString(), builder);
+		}
+	}
+
+	private static void writeString(CharSequence string, StringBuilder builder) {
+		builder.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+			case '"' -> builder.append("\\\"");
+			case '\\' -> builder.append("\\\\");
+			case '\n' -> builder.append("\\n");
+			case '\r' -> builder.append("\\r");
+			case '\t' -> builder.append("\\t");
+			default -> {
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+			}
+		}
+		builder.append('"');
+	}
+}
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.mcp;
+
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IPathEditorInput;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchWindow;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * The tools offered by the {@link ContextServer}, answered from the in-memory
+ * resource tree, the problem markers and the open editors of the workbench.
+ *
+ * Every call is scoped to the working directory of the session, paths are
+ * reported relative to it.
+ */
+final class WorkspaceTools {
+
+	private static final int DEFAULT_LIMIT = 200;
+
+	private static final int MAX_LIMIT = 5000;
+
+	private WorkspaceTools() {
+	}
+
+	/**
+	 * @return the descriptions of all tools for a <code>tools/list</code>
+	 *         request
+	 */
+	static List<Map<String, Object>> getTools() {
+		List<Map<String, Object>> tools = new ArrayList<>();
+		tools.add(tool("list_files",
+				"Lists the files of the Eclipse workspace below the working directory, without build output. "
+						+ "Much faster than walking the file system.",
+				Map.of("pattern", property("string", "Glob matched against the relative path, e.g. **/*.java"),
+						"limit", property("integer", "Maximum number of results, default 200")),
+				List.of()));
+		tools.add(tool("find_symbol",
+				"Finds the files declaring a type by its name, e.g. a Java class. Matches the exact name, "
+						+ "a case insensitive prefix or CamelCase initials like OPH for OpenPromptHandler.",
+				Map.of("name", property("string", "The symbol name or CamelCase pattern"), "limit",
+						property("integer", "Maximum number of results, default 200")),
+				List.of("name")));
+		tools.add(tool("get_diagnostics",
+				"Returns the compiler errors and warnings Eclipse reports below the working directory.",
+				Map.of("path", property("string", "Relative file or folder to restrict the result to"), "severity",
+						property("string", "Minimum severity: error, warning (default) or info"), "limit",
+						property("integer", "Maximum number of results, default 200")),
+				List.of()));
+		tools.add(tool("list_open_editors",
+				"Lists the files below the working directory open in Eclipse editors, marking the active and "
+						+ "unsaved ones.",
+				Map.of(),
+				List.of()));
+		return tools;
+	}
+
+	/**
+	 * Runs the given tool
+	 *
+	 * @throws IllegalArgumentException if the tool or its arguments are invalid
+	 */
+	static String call(String name, Map<String, Object> arguments, Path workingDir) throws CoreException {
+		return switch (name) {
+		case "list_files" -> listFiles(arguments, workingDir);
+		case "find_symbol" -> findSymbol(arguments, workingDir);
+		case "get_diagnostics" -> getDiagnostics(arguments, workingDir);
+		case "list_open_editors" -> listOpenEditors(workingDir);
+		default -> throw new IllegalArgumentException("Unknown tool " + name);
+		};
+	}
+
+	private static String listFiles(Map<String, Object> arguments, Path workingDir) throws CoreException {
+		String pattern = getString(arguments, "pattern");
+		PathMatcher matcher = pattern == null || pattern.isBlank() ? null
+				: FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		int limit = getLimit(arguments);
+		List<String> files = new ArrayList<>();
+		visitFiles(workingDir, (file, relative) -> {
+			if (matcher == null || matcher.matches(relative)) {
+				files.add(relative.toString());
+			}
+			return files.size() < limit;
+		});
+		return files.isEmpty() ? "No files found" : String.join("\n", files);
+	}
+
+	private static String findSymbol(Map<String, Object> arguments, Path workingDir) throws CoreException {
+		String name = getString(arguments, "name");
+		if (name == null || name.isBlank()) {
+			throw new IllegalArgumentException("name is required");
+		}
+		String symbol = name.strip();
+		int limit = getLimit(arguments);
+		List<String> exact = new ArrayList<>();
+		List<String> prefix = new ArrayList<>();
+		List<String> camelCase = new ArrayList<>();
+		String lower = symbol.toLowerCase(Locale.ROOT);
+		visitFiles(workingDir, (file, relative) -> {
+			String fileName = file.getName();
+			int dot = fileName.lastIndexOf('.');
+			String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+			if (base.equals(symbol)) {
+				exact.add(relative.toString());
+			} else if (base.toLowerCase(Locale.ROOT).startsWith(lower)) {
+				prefix.add(relative.toString());
+			} else if (matchesCamelCase(symbol, base)) {
+				camelCase.add(relative.toString());
+			}
+			return exact.size() < limit;
+		});
+		List<String> result = new ArrayList<>(exact);
+		result.addAll(prefix);
+		result.addAll(camelCase);
+		if (result.isEmpty()) {
+			return "No symbol " + symbol + " found";
+		}
+		return String.join("\n", result.subList(0, Math.min(limit, result.size())));
+	}
+
+	private static String getDiagnostics(Map<String, Object> arguments, Path workingDir) throws CoreException {
+		String severityName = getString(arguments, "severity");
+		int minimum = switch (severityName == null ? "warning" : severityName.toLowerCase(Locale.ROOT)) {
+		case "error" -> IMarker.SEVERITY_ERROR;
+		case "warning" -> IMarker.SEVERITY_WARNING;
+		case "info" -> IMarker.SEVERITY_INFO;
+		default -> throw new IllegalArgumentException("Unknown severity " + severityName);
+		};
+		List<IResource> resources = new ArrayList<>();
+		String path = getString(arguments, "path");
+		if (path != null && !path.isBlank()) {
+			Path target = resolve(workingDir, path);
+			IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+			resources.addAll(List.of(root.findFilesForLocationURI(target.toUri())));
+			resources.addAll(List.of(root.findContainersForLocationURI(target.toUri())));
+		} else {
+			resources.addAll(getScope(workingDir));
+		}
+		int limit = getLimit(arguments);
+		Set<IMarker> seen = new LinkedHashSet<>();
+		List<String> problems = new ArrayList<>();
+		for (IResource resource : resources) {
+			if (!resource.isAccessible()) {
+				continue;
+			}
+			for (IMarker marker : resource.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE)) {
+				int severity = marker.getAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
+				if (severity < minimum || !seen.add(marker) || problems.size() >= limit) {
+					continue;
+				}
+				StringBuilder problem = new StringBuilder(toRelative(workingDir, marker.getResource()));
+				int line = marker.getAttribute(IMarker.LINE_NUMBER, -1);
+				if (line > 0) {
+					problem.append(':').append(line);
+				}
+				problem.append(": ").append(severity == IMarker.SEVERITY_ERROR ? "error"
+						: severity == IMarker.SEVERITY_WARNING ? "warning" : "info");
+				problem.append(": ").append(marker.getAttribute(IMarker.MESSAGE, ""));
+				problems.add(problem.toString());
+			}
+		}
+		return problems.isEmpty() ? "No problems found" : String.join("\n", problems);
+	}
+
+	private static String listOpenEditors(Path workingDir) {
+		IWorkbench workbench = PlatformUI.getWorkbench();
+		Display display = workbench.getDisplay();
+		AtomicReference<List<String>> editors = new AtomicReference<>(List.of());
+		display.syncExec(() -> {
+			List<String> result = new ArrayList<>();
+			for (IWorkbenchWindow window : workbench.getWorkbenchWindows()) {
+				for (IWorkbenchPage page : window.getPages()) {
+					IEditorInput active = page.getActiveEditor() != null ? page.getActiveEditor().getEditorInput()
+							: null;
+					for (IEditorReference reference : page.getEditorReferences()) {
+						IEditorInput input;
+						try {
+							// only the input is needed, the editor itself is not restored
+							input = reference.getEditorInput();
+						} catch (PartInitException e) {
+							continue;
+						}
+						// editors outside of the working directory are out of the scope of the token
+						Path location = getLocation(input);
+						if (location == null || !location.startsWith(workingDir)) {
+							continue;
+						}
+						StringBuilder editor = new StringBuilder(workingDir.relativize(location).toString());
+						if (reference.isDirty()) {
+							editor.append(" [unsaved]");
+						}
+						if (input.equals(active)) {
+							editor.append(" [active]");
+						}
+						result.add(editor.toString());
+					}
+				}
+			}
+			editors.set(result);
+		});
+		return editors.get().isEmpty() ? "No editors open below the working directory"
+				: String.join("\n", editors.get());
+	}
+
+	/**
+	 * @return the normalized location of the file shown by the editor or
+	 *         <code>null</code> if it does not show a file
+	 */
+	private static Path getLocation(IEditorInput input) {
+		IPath location = null;
+		if (input instanceof IPathEditorInput pathInput) {
+			location = pathInput.getPath();
+		} else {
+			IFile file = input.getAdapter(IFile.class);
+			if (file != null) {
+				location = file.getLocation();
+			}
+		}
+		return location == null ? null : location.toPath().toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Visits the files of the workspace below the working directory until the
+	 * visitor returns <code>false</code>
+	 */
+	private static void visitFiles(Path workingDir, FileVisitor visitor) throws CoreException {
+		boolean[] done = { false };
+		for (IContainer container : getScope(workingDir)) {
+			container.accept(proxy -> {
+				if (done[0] || proxy.isDerived()) {
+					return false;
+				}
+				if (proxy.getType() == IResource.FILE) {
+					IResource file = proxy.requestResource();
+					IPath location = file.getLocation();
+					if (location != null) {
+						Path path = location.toPath();
+						if (path.startsWith(workingDir) && !visitor.visit(file, workingDir.relativize(path))) {
+							done[0] = true;
+						}
+					}
+				}
+				return true;
+			}, IResource.NONE);
+			if (done[0]) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * @return the projects and folders of the workspace below the working
+	 *         directory, without nested duplicates
+	 */
+	private static List<IContainer> getScope(Path workingDir) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Map<Path, IContainer> containers = new LinkedHashMap<>();
+		for (IContainer container : root.findContainersForLocationURI(workingDir.toUri())) {
+			if (container.getType() != IResource.ROOT && container.isAccessible()) {
+				containers.putIfAbsent(workingDir, container);
+			}
+		}
+		for (IProject project : root.getProjects()) {
+			IPath location = project.getLocation();
+			if (project.isAccessible() && location != null && location.toPath().startsWith(workingDir)) {
+				containers.putIfAbsent(location.toPath(), project);
+			}
+		}
+		List<IContainer> scope = new ArrayList<>();
+		for (Map.Entry<Path, IContainer> entry : containers.entrySet()) {
+			boolean nested = containers.keySet().stream()
+					.anyMatch(other -> !other.equals(entry.getKey()) && entry.getKey().startsWith(other));
+			if (!nested) {
+				scope.add(entry.getValue());
+			}
+		}
+		return scope;
+	}
+
+	/**
+	 * Matches CamelCase initials, e.g. <code>OPH</code> or
+	 * <code>OpPrHa</code> for <code>OpenPromptHandler</code>
+	 */
+	static boolean matchesCamelCase(String pattern, String name) {
+		if (pattern.isEmpty() || !Character.isUpperCase(pattern.charAt(0))) {
+			return false;
+		}
+		List<String> segments = splitWords(pattern);
+		List<String> words = splitWords(name);
+		if (segments.size() > words.size()) {
+			return false;
+		}
+		for (int i = 0; i < segments.size(); i++) {
+			if (!words.get(i).startsWith(segments.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<String> splitWords(String text) {
+		List<String> words = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i <= text.length(); i++) {
+			if (i == text.length() || Character.isUpperCase(text.charAt(i))) {
+				words.add(text.substring(start, i));
+				start = i;
+			}
+		}
+		return words;
+	}
+
+	private static String toRelative(Path workingDir, IResource resource) {
+		IPath location = resource.getLocation();
+		return location != null ? toRelative(workingDir, location) : resource.getFullPath().toString();
+	}
+
+	private static String toRelative(Path workingDir, IPath location) {
+		Path path = location.toPath();
+		return path.startsWith(workingDir) ? workingDir.relativize(path).toString() : path.toString();
+	}
+
+	private static Path resolve(Path workingDir, String path) {
+		Path resolved;
+		try {
+			resolved = workingDir.resolve(path).normalize();
+		} catch (InvalidPathException e) {
+			throw new IllegalArgumentException("Invalid path " + path);
+		}
+		if (!resolved.startsWith(workingDir)) {
+			// absolute paths or .. segments must not leave the scope of the token
+			throw new IllegalArgumentException("Path " + path + " is outside of the working directory");
+		}
+		return resolved;
+	}
+
+	private static String getString(Map<String, Object> arguments, String name) {
+		Object value = arguments.get(name);
+		return value == null ? null : value.toString();
+	}
+
+	private static int getLimit(Map<String, Object> arguments) {
+		Object value = arguments.get("limit");
+		if (value instanceof Number number) {
+			return Math.max(1, Math.min(MAX_LIMIT, number.intValue()));
+		}
+		return DEFAULT_LIMIT;
+	}
+
+	private static Map<String, Object> tool(String name, String description, Map<String, Object> properties,
+			List<String> required) {
+		Map<String, Object> schema = new LinkedHashMap<>();
+		schema.put("type", "object");
+		schema.put("properties", properties);
+		schema.put("required", required);
+		Map<String, Object> tool = new LinkedHashMap<>();
+		tool.put("name", name);
+		tool.put("description", description);
+		tool.put("inputSchema", schema);
+		return tool;
+	}
+
+	private static Map<String, Object> property(String type, String description) {
+		return Map.of("type", type, "description", description);
+	}
+
+	@FunctionalInterface
+	private interface FileVisitor {
+		boolean visit(IResource file, Path relative);
+	}
+}
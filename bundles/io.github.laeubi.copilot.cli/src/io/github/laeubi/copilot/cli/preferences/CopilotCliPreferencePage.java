@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.preferences;
+
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.BackgroundExecutor;
+import io.github.laeubi.copilot.cli.cache.ResponseCache;
+
+/**
+ * Preference page for the GitHub Copilot CLI integration.
+ */
+public class CopilotCliPreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
+
+	public CopilotCliPreferencePage() {
+		super(GRID);
+		setPreferenceStore(Activator.getDefault().getPreferenceStore());
+		setDescription("Settings for the GitHub Copilot CLI integration.");
+	}
+
+	@Override
+	protected void createFieldEditors() {
+		addField(new BooleanFieldEditor(PreferenceConstants.RESTORE_SESSIONS,
+				"&Restore open Copilot sessions on startup", getFieldEditorParent()));
+		addField(new BooleanFieldEditor(PreferenceConstants.RESTORE_PRESPAWN,
+				"&Start restored sessions in the background instead of on first use", getFieldEditorParent()));
+		addField(new BooleanFieldEditor(PreferenceConstants.REFRESH_CHANGED_FILES,
+				"Refresh &files changed by Copilot in the workspace", getFieldEditorParent()));
+		addField(new BooleanFieldEditor(PreferenceConstants.DEFER_BUILDS,
+				"&Hold back builds while Copilot changes files", getFieldEditorParent()));
+		IntegerFieldEditor maxDeferral = new IntegerFieldEditor(PreferenceConstants.MAX_BUILD_DEFERRAL,
+				"&Maximum suspension (seconds):", getFieldEditorParent());
+		maxDeferral.setValidRange(1, 3600);
+		addField(maxDeferral);
+		addField(new BooleanFieldEditor(PreferenceConstants.RESPONSE_CACHE,
+				"&Cache responses of repeated prompts", getFieldEditorParent()));
+		addField(new BooleanFieldEditor(PreferenceConstants.CONTEXT_SERVER,
+				"Let Copilot query the &workspace (files, symbols, problems, open editors)", getFieldEditorParent()));
+		IntegerFieldEditor maxParallel = new IntegerFieldEditor(PreferenceConstants.MAX_PARALLEL_SESSIONS,
+				"Maximum &parallel sessions per repository:", getFieldEditorParent());
+		maxParallel.setValidRange(1, 32);
+		addField(maxParallel);
+		IntegerFieldEditor maxWorking = new IntegerFieldEditor(PreferenceConstants.MAX_WORKING_SESSIONS,
+				"Maximum sessions working on &queued prompts at once:", getFieldEditorParent());
+		maxWorking.setValidRange(1, 32);
+		addField(maxWorking);
+		Activator activator = Activator.getDefault();
+		ResponseCache cache = activator == null ? null : activator.findResponseCache();
+		if (cache == null && activator != null
+				&& activator.getPreferenceStore().getBoolean(PreferenceConstants.RESPONSE_CACHE)) {
+			cache = activator.getResponseCache();
+		}
+		if (cache != null) {
+			addStatistics("Response cache: " + cache.getStatistics());
+		}
+		if (activator != null) {
+			for (BackgroundExecutor.Statistics pool : activator.getExecutor().getStatistics()) {
+				addStatistics("Background pool " + pool);
+			}
+		}
+	}
+
+	private void addStatistics(String text) {
+		Label statistics = new Label(getFieldEditorParent(), SWT.NONE);
+		statistics.setText(text);
+		GridData data = new GridData();
+		data.horizontalSpan = 2;
+		statistics.setLayoutData(data);
+	}
+
+	@Override
+	public void init(IWorkbench workbench) {
+		// Nothing to initialize
+	}
+}
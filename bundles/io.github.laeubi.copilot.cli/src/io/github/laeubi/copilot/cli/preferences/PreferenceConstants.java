@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.preferences;
+
+/**
+ * Preference keys of the Copilot CLI plug-in.
+ */
+public final class PreferenceConstants {
+
+	/**
+	 * Restore the Copilot sessions that were open when the workbench was shut
+	 * down
+	 */
+	public static final String RESTORE_SESSIONS = "restoreSessions";
+
+	/**
+	 * Spawn restored sessions in the background instead of waiting until a
+	 * session is used
+	 */
+	public static final String RESTORE_PRESPAWN = "restorePrespawn";
+
+	/**
+	 * Watch the working directory of running sessions and refresh the files
+	 * changed by Copilot in the workspace
+	 */
+	public static final String REFRESH_CHANGED_FILES = "refreshChangedFiles";
+
+	/**
+	 * Hold back the auto-build while a Copilot session changes the files of its
+	 * repository
+	 */
+	public static final String DEFER_BUILDS = "deferBuilds";
+
+	/**
+	 * The maximum time in seconds the auto-build is held back while a session
+	 * is busy
+	 */
+	public static final String MAX_BUILD_DEFERRAL = "maxBuildDeferral";
+
+	/**
+	 * Answer repeated prompts over unchanged files from the response cache
+	 */
+	public static final String RESPONSE_CACHE = "responseCache";
+
+	/**
+	 * The maximum number of parallel Copilot sessions on worktrees of one
+	 * repository
+	 */
+	public static final String MAX_PARALLEL_SESSIONS = "maxParallelSessions";
+
+	/**
+	 * The maximum number of sessions working on queued prompts at the same time
+	 */
+	public static final String MAX_WORKING_SESSIONS = "maxWorkingSessions";
+
+	/**
+	 * Register the workspace context server with every new session
+	 */
+	public static final String CONTEXT_SERVER = "contextServer";
+
+	private PreferenceConstants() {
+	}
+}
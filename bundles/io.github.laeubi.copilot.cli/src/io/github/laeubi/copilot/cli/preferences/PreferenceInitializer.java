@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.preferences;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import io.github.laeubi.copilot.cli.Activator;
+
+/**
+ * Initializes the default values of the Copilot CLI preferences.
+ */
+public class PreferenceInitializer extends AbstractPreferenceInitializer {
+
+	@Override
+	public void initializeDefaultPreferences() {
+		IPreferenceStore store = Activator.getDefault().getPreferenceStore();
+		store.setDefault(PreferenceConstants.RESTORE_SESSIONS, true);
+		store.setDefault(PreferenceConstants.RESTORE_PRESPAWN, false);
+		store.setDefault(PreferenceConstants.REFRESH_CHANGED_FILES, true);
+		store.setDefault(PreferenceConstants.DEFER_BUILDS, true);
+		store.setDefault(PreferenceConstants.MAX_BUILD_DEFERRAL, 60);
+		store.setDefault(PreferenceConstants.RESPONSE_CACHE, false);
+		store.setDefault(PreferenceConstants.MAX_PARALLEL_SESSIONS, 4);
+		store.setDefault(PreferenceConstants.MAX_WORKING_SESSIONS, 4);
+		store.setDefault(PreferenceConstants.CONTEXT_SERVER, false);
+	}
+}
@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.team.core.Team;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.BackgroundExecutor;
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker.SessionListener;
+import io.github.laeubi.copilot.cli.preferences.PreferenceConstants;
+
+/**
+ * Watches the working directories of running Copilot sessions with the native
+ * file watcher and refreshes exactly the resources the agent touched.
+ *
+ * Only directories that are part of the workspace are watched, derived and
+ * team ignored folders like build output are skipped, as are directories not
+ * containing any project. Changes arriving within a short time are refreshed
+ * in a single workspace job, so the workspace sees one resource delta per
+ * batch instead of a full {@link IResource#DEPTH_INFINITE} refresh of the
+ * project. Builds are held back by the {@link BuildGovernor}.
+ */
+public class AgentFileWatcher implements SessionListener {
+
+	private static final Set<String> IGNORED_DIRECTORIES = Set.of(".git", "node_modules");
+
+	private final BackgroundExecutor executor;
+
+	private final Map<Path, List<CopilotCliConnector>> roots = new HashMap<>();
+
+	/**
+	 * The watched directories, guarded by {@link #roots} so a key is always
+	 * known before its first event is looked up
+	 */
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+
+	/**
+	 * The number of changes seen below each working directory, guarded by
+	 * {@link #roots}
+	 */
+	private final Map<Path, Long> changeCounts = new HashMap<>();
+
+	private static final long COALESCE_MS = 300;
+
+	private final Map<Path, Boolean> pending = new LinkedHashMap<>();
+
+	private boolean refreshScheduled;
+
+	private WatchService watchService;
+
+	public AgentFileWatcher(BackgroundExecutor executor) {
+		this.executor = executor;
+	}
+
+	@Override
+	public void sessionStarted(CopilotCliConnector connector) {
+		Path root = toPath(connector.getWorkingDir());
+		Activator activator = Activator.getDefault();
+		// the activator is gone while the plug-in is stopping
+		if (root == null || activator == null
+				|| !activator.getPreferenceStore().getBoolean(PreferenceConstants.REFRESH_CHANGED_FILES)) {
+			return;
+		}
+		synchronized (roots) {
+			List<CopilotCliConnector> connectors = roots.computeIfAbsent(root, r -> new ArrayList<>());
+			connectors.add(connector);
+			changeCounts.putIfAbsent(root, 0L);
+			if (connectors.size() > 1) {
+				return;
+			}
+		}
+		executor.io().execute(() -> registerTree(root));
+	}
+
+	@Override
+	public void sessionEnded(CopilotCliConnector connector) {
+		Path root = toPath(connector.getWorkingDir());
+		if (root == null) {
+			return;
+		}
+		synchronized (roots) {
+			List<CopilotCliConnector> connectors = roots.get(root);
+			if (connectors == null || !connectors.remove(connector) || !connectors.isEmpty()) {
+				return;
+			}
+			roots.remove(root);
+			changeCounts.remove(root);
+			directories.entrySet().removeIf(entry -> {
+				Path directory = entry.getValue();
+				if (directory.startsWith(root) && roots.keySet().stream().noneMatch(directory::startsWith)) {
+					entry.getKey().cancel();
+					return true;
+				}
+				return false;
+			});
+			if (roots.isEmpty()) {
+				closeWatchService();
+			}
+		}
+	}
+
+	/**
+	 * Returns a counter of the changes seen below the given working directory,
+	 * two values differ if files were changed in between.
+	 *
+	 * @return the counter or <code>-1</code> if the directory is not watched, so
+	 *         changes would go unnoticed
+	 */
+	public long getChangeCount(String workingDir) {
+		Path root = toPath(workingDir);
+		if (root == null) {
+			return -1;
+		}
+		synchronized (roots) {
+			Long count = changeCounts.get(root);
+			if (count == null || directories.values().stream().noneMatch(directory -> directory.startsWith(root))) {
+				return -1;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Stops watching all directories.
+	 */
+	public void dispose() {
+		synchronized (roots) {
+			roots.clear();
+			directories.clear();
+			changeCounts.clear();
+			closeWatchService();
+		}
+		synchronized (pending) {
+			pending.clear();
+		}
+	}
+
+	private void closeWatchService() {
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				// nothing we can do then
+			}
+			watchService = null;
+		}
+	}
+
+	private void registerTree(Path start) {
+		IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
+		List<Path> projects = getProjectLocations(workspaceRoot);
+		try {
+			Files.walkFileTree(start, new SimpleFileVisitor<>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+					Path name = dir.getFileName();
+					if (name != null && IGNORED_DIRECTORIES.contains(name.toString())) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					IContainer[] containers = findContainers(workspaceRoot, dir);
+					if (containers.length == 0) {
+						// outside of the workspace, only look further for nested projects
+						return projects.stream().anyMatch(project -> project.startsWith(dir))
+								? FileVisitResult.CONTINUE
+								: FileVisitResult.SKIP_SUBTREE;
+					}
+					if (Arrays.stream(containers).allMatch(AgentFileWatcher::isIgnored)) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return register(dir) ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			ILog.get().warn("Can't watch " + start + " for changes made by Copilot", e);
+		}
+	}
+
+	private boolean register(Path directory) throws IOException {
+		synchronized (roots) {
+			if (roots.keySet().stream().noneMatch(directory::startsWith)) {
+				// the session ended meanwhile
+				return false;
+			}
+			if (watchService == null) {
+				watchService = FileSystems.getDefault().newWatchService();
+				WatchService newService = watchService;
+				executor.startDaemon("Copilot CLI file watcher", () -> poll(newService));
+			}
+			directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), directory);
+			return true;
+		}
+	}
+
+	private void poll(WatchService service) {
+		IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
+		try {
+			while (true) {
+				WatchKey key = service.take();
+				Path directory;
+				synchronized (roots) {
+					directory = directories.get(key);
+				}
+				if (directory != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == OVERFLOW) {
+							changed(directory, true);
+							continue;
+						}
+						Path child = directory.resolve((Path) event.context());
+						Path name = child.getFileName();
+						if (name != null && IGNORED_DIRECTORIES.contains(name.toString())) {
+							continue;
+						}
+						boolean newDirectory = event.kind() == ENTRY_CREATE
+								&& Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS);
+						if (isIgnored(workspaceRoot, child, newDirectory)) {
+							continue;
+						}
+						if (newDirectory) {
+							registerTree(child);
+						}
+						changed(child, newDirectory);
+					}
+				}
+				if (!key.reset()) {
+					synchronized (roots) {
+						directories.remove(key);
+					}
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// all sessions are gone
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the changed path only maps to derived or
+	 *         team ignored resources
+	 */
+	private static boolean isIgnored(IWorkspaceRoot workspaceRoot, Path path, boolean directory) {
+		IResource[] resources = directory ? findContainers(workspaceRoot, path)
+				: workspaceRoot.findFilesForLocationURI(path.toUri());
+		return resources.length > 0 && Arrays.stream(resources).allMatch(AgentFileWatcher::isIgnored);
+	}
+
+	private static boolean isIgnored(IResource resource) {
+		return resource.isDerived() || Team.isIgnoredHint(resource);
+	}
+
+	private static IContainer[] findContainers(IWorkspaceRoot workspaceRoot, Path path) {
+		return Arrays.stream(workspaceRoot.findContainersForLocationURI(path.toUri()))
+				.filter(container -> container.getType() != IResource.ROOT).toArray(IContainer[]::new);
+	}
+
+	private static List<Path> getProjectLocations(IWorkspaceRoot workspaceRoot) {
+		List<Path> locations = new ArrayList<>();
+		for (IProject project : workspaceRoot.getProjects()) {
+			IPath location = project.getLocation();
+			if (location != null) {
+				locations.add(location.toPath().toAbsolutePath().normalize());
+			}
+		}
+		return locations;
+	}
+
+	/**
+	 * Records a changed path, <code>tree</code> is <code>true</code> if
+	 * everything below the path needs to be refreshed
+	 */
+	private void changed(Path path, boolean tree) {
+		synchronized (roots) {
+			changeCounts.replaceAll((root, count) -> path.startsWith(root) ? count + 1 : count);
+		}
+		synchronized (pending) {
+			pending.merge(path, tree, Boolean::logicalOr);
+			if (refreshScheduled) {
+				return;
+			}
+			refreshScheduled = true;
+		}
+		CompletableFuture.delayedExecutor(COALESCE_MS, TimeUnit.MILLISECONDS, executor.io()).execute(() -> {
+			Map<Path, Boolean> paths;
+			synchronized (pending) {
+				paths = new LinkedHashMap<>(pending);
+				pending.clear();
+				refreshScheduled = false;
+			}
+			refresh(paths);
+		});
+	}
+
+	/**
+	 * Refreshes the resources for the given paths in one workspace operation.
+	 */
+	void refresh(Map<Path, Boolean> paths) {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		Map<IResource, Integer> resources = collectResources(workspace.getRoot(), paths);
+		if (resources.isEmpty()) {
+			return;
+		}
+		ISchedulingRule[] rules = resources.keySet().stream()
+				.map(resource -> workspace.getRuleFactory().refreshRule(resource)).toArray(ISchedulingRule[]::new);
+		WorkspaceJob job = new WorkspaceJob("Refresh files changed by Copilot") {
+			@Override
+			public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+				SubMonitor subMonitor = SubMonitor.convert(monitor, resources.size());
+				for (Map.Entry<IResource, Integer> entry : resources.entrySet()) {
+					entry.getKey().refreshLocal(entry.getValue(), subMonitor.split(1));
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setRule(MultiRule.combine(rules));
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	private static Map<IResource, Integer> collectResources(IWorkspaceRoot root, Map<Path, Boolean> paths) {
+		Map<IResource, Integer> resources = new LinkedHashMap<>();
+		for (Map.Entry<Path, Boolean> entry : paths.entrySet()) {
+			Path path = entry.getKey();
+			boolean tree = entry.getValue();
+			boolean found = false;
+			for (IFile file : root.findFilesForLocationURI(path.toUri())) {
+				resources.merge(file, IResource.DEPTH_ZERO, Math::max);
+				found = true;
+			}
+			for (IContainer container : root.findContainersForLocationURI(path.toUri())) {
+				if (container.getType() != IResource.ROOT) {
+					resources.merge(container, tree ? IResource.DEPTH_INFINITE : IResource.DEPTH_ZERO, Math::max);
+					found = true;
+				}
+			}
+			if (found || path.getParent() == null || path.getFileName() == null) {
+				continue;
+			}
+			// not yet known to the workspace, refresh a handle in the parent
+			IPath name = IPath.fromOSString(path.getFileName().toString());
+			boolean directory = Files.isDirectory(path);
+			for (IContainer parent : root.findContainersForLocationURI(path.getParent().toUri())) {
+				if (parent.getType() == IResource.ROOT) {
+					continue;
+				}
+				if (directory) {
+					resources.merge(parent.getFolder(name), IResource.DEPTH_INFINITE, Math::max);
+				} else {
+					resources.merge(parent.getFile(name), IResource.DEPTH_ZERO, Math::max);
+				}
+			}
+		}
+		return resources;
+	}
+
+	private static Path toPath(String workingDir) {
+		if (workingDir == null) {
+			return null;
+		}
+		try {
+			return Path.of(workingDir).toAbsolutePath().normalize();
+		} catch (InvalidPathException e) {
+			return null;
+		}
+	}
+}
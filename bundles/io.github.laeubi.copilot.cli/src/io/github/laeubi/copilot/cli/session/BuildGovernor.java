@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker.SessionListener;
+import io.github.laeubi.copilot.cli.preferences.PreferenceConstants;
+
+/**
+ * Holds back the auto-build while Copilot is changing files.
+ *
+ * Every file the agent writes triggers an incremental build once it is
+ * refreshed, so a single task causes one build after the other. A session
+ * root is busy while the {@link AgentFileWatcher} keeps seeing changes below
+ * it. As long as all projects changed since the last build are below busy
+ * roots, the auto-build job is put to sleep and woken up once the roots are
+ * idle, which results in a single build over all changes. A change in any
+ * other project wakes the build right away, so work outside of the session is
+ * never held back. A configurable maximum makes sure a build still runs during
+ * long tasks.
+ *
+ * The auto-build setting of the workspace is never touched, and the build
+ * only sleeps while the IDE runs.
+ */
+public class BuildGovernor extends JobChangeAdapter implements SessionListener, IResourceChangeListener {
+
+	private static final long IDLE_MS = 1500;
+
+	private static final long CHECK_INTERVAL_MS = 500;
+
+	/**
+	 * After the maximum deferral ran out a build gets at least this time before
+	 * it is held back again
+	 */
+	private static final long BUILD_WINDOW_MS = 10000;
+
+	private final ProcessResourceTracker tracker;
+
+	private final AgentFileWatcher fileWatcher;
+
+	private final Executor executor;
+
+	/**
+	 * The change counts of the session roots and when they last changed
+	 */
+	private final Map<Path, long[]> activity = new HashMap<>();
+
+	/**
+	 * The locations of the projects changed since the last build
+	 */
+	private final Set<Path> changedProjects = new HashSet<>();
+
+	private boolean checkScheduled;
+
+	private volatile boolean suspended;
+
+	private long suspendedAt;
+
+	private long resumedAt;
+
+	private boolean disposed;
+
+	/**
+	 * @param tracker     the tracker of the running sessions
+	 * @param fileWatcher the watcher of the session roots
+	 * @param executor    the executor to check the sessions on
+	 */
+	public BuildGovernor(ProcessResourceTracker tracker, AgentFileWatcher fileWatcher, Executor executor) {
+		this.tracker = tracker;
+		this.fileWatcher = fileWatcher;
+		this.executor = executor;
+	}
+
+	@Override
+	public void sessionStarted(CopilotCliConnector connector) {
+		schedule();
+	}
+
+	@Override
+	public void sessionEnded(CopilotCliConnector connector) {
+		schedule();
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		if (event.getType() == IResourceChangeEvent.POST_BUILD) {
+			if (event.getBuildKind() != IncrementalProjectBuilder.CLEAN_BUILD) {
+				synchronized (changedProjects) {
+					changedProjects.clear();
+				}
+			}
+			return;
+		}
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		for (IResourceDelta child : delta.getAffectedChildren()) {
+			IPath location = child.getResource().getLocation();
+			if (location != null) {
+				synchronized (changedProjects) {
+					changedProjects.add(location.toFile().toPath().toAbsolutePath().normalize());
+				}
+			}
+		}
+	}
+
+	@Override
+	public void scheduled(IJobChangeEvent event) {
+		if (suspended && event.getJob().belongsTo(ResourcesPlugin.FAMILY_AUTO_BUILD)) {
+			// the job can only be put to sleep once it is scheduled
+			executor.execute(this::holdBuild);
+		}
+	}
+
+	/**
+	 * Wakes up the auto-build if it is currently held back
+	 */
+	public void dispose() {
+		synchronized (this) {
+			disposed = true;
+			if (!suspended) {
+				return;
+			}
+			suspended = false;
+		}
+		Job.getJobManager().wakeUp(ResourcesPlugin.FAMILY_AUTO_BUILD);
+	}
+
+	/**
+	 * @return <code>true</code> if the auto-build is currently held back
+	 */
+	public boolean isSuspended() {
+		return suspended;
+	}
+
+	private synchronized void schedule() {
+		if (checkScheduled || disposed) {
+			return;
+		}
+		checkScheduled = true;
+		CompletableFuture.delayedExecutor(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS, executor).execute(this::check);
+	}
+
+	private void check() {
+		boolean wakeUp = false;
+		boolean again;
+		synchronized (this) {
+			checkScheduled = false;
+			if (disposed) {
+				return;
+			}
+			Activator activator = Activator.getDefault();
+			if (activator == null) {
+				return;
+			}
+			IPreferenceStore store = activator.getPreferenceStore();
+			long now = System.currentTimeMillis();
+			Set<Path> busyRoots = getBusyRoots(now);
+			boolean defer = store.getBoolean(PreferenceConstants.DEFER_BUILDS) && !busyRoots.isEmpty()
+					&& onlyChangedBelow(busyRoots);
+			if (suspended) {
+				long maxSuspension = TimeUnit.SECONDS.toMillis(store.getInt(PreferenceConstants.MAX_BUILD_DEFERRAL));
+				if (!defer || now - suspendedAt >= maxSuspension) {
+					suspended = false;
+					resumedAt = now;
+					wakeUp = true;
+				}
+			} else if (defer && now - resumedAt >= BUILD_WINDOW_MS) {
+				suspended = true;
+				suspendedAt = now;
+			}
+			again = suspended || !tracker.getConnectors().isEmpty();
+		}
+		if (wakeUp) {
+			Job.getJobManager().wakeUp(ResourcesPlugin.FAMILY_AUTO_BUILD);
+		} else {
+			holdBuild();
+		}
+		if (again) {
+			schedule();
+		}
+	}
+
+	/**
+	 * Puts a scheduled auto-build to sleep, a sleeping job stays asleep when it
+	 * is scheduled again until it is woken up
+	 */
+	private void holdBuild() {
+		if (suspended) {
+			Job.getJobManager().sleep(ResourcesPlugin.FAMILY_AUTO_BUILD);
+		}
+	}
+
+	/**
+	 * @return the roots of the sessions whose files changed recently, sessions
+	 *         whose root is not watched are never busy
+	 */
+	private Set<Path> getBusyRoots(long now) {
+		Set<Path> busy = new HashSet<>();
+		Set<Path> roots = new HashSet<>();
+		for (CopilotCliConnector connector : tracker.getConnectors()) {
+			Path root = toPath(connector.getWorkingDir());
+			long count = fileWatcher.getChangeCount(connector.getWorkingDir());
+			if (root == null || count < 0 || !roots.add(root)) {
+				continue;
+			}
+			long[] last = activity.get(root);
+			if (last == null) {
+				activity.put(root, new long[] { count, 0 });
+			} else if (last[0] != count) {
+				last[0] = count;
+				last[1] = now;
+			}
+			if (last != null && now - last[1] < IDLE_MS) {
+				busy.add(root);
+			}
+		}
+		activity.keySet().retainAll(roots);
+		return busy;
+	}
+
+	private boolean onlyChangedBelow(Set<Path> roots) {
+		List<Path> projects;
+		synchronized (changedProjects) {
+			projects = List.copyOf(changedProjects);
+		}
+		for (Path project : projects) {
+			// a session might as well run in a folder of a project
+			if (roots.stream().noneMatch(root -> project.startsWith(root) || root.startsWith(project))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Path toPath(String workingDir) {
+		if (workingDir == null) {
+			return null;
+		}
+		try {
+			return Path.of(workingDir).toAbsolutePath().normalize();
+		} catch (InvalidPathException e) {
+			return null;
+		}
+	}
+}
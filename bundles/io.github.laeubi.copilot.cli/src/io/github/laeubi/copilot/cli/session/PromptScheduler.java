@@ -0,0 +1,525 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker;
+import io.github.laeubi.copilot.cli.preferences.PreferenceConstants;
+
+/**
+ * Queues prompts per Copilot session and hands them over one after the other.
+ *
+ * A prompt is dispatched once its session is idle, that is the CLI has settled
+ * after starting up or after answering the previous prompt, it does not ask
+ * for a confirmation and the user has not left any text in its input line. The
+ * prompt is then pasted and submitted, and the session works on it until it is
+ * quiet again.
+ *
+ * Each session has its own queue ordered by priority, prompts of equal
+ * priority keep the order they were added in and can be moved or cancelled
+ * while waiting. Sessions compete for a global limit of sessions working on a
+ * queued prompt at once. A free slot goes to the session whose next prompt has
+ * the highest priority, among equal priorities round robin, so a long queue of
+ * one session never starves the others.
+ */
+public class PromptScheduler implements ProcessResourceTracker.SessionListener {
+
+	private static final long CONNECT_TIMEOUT_MS = 30000;
+
+	private static final long IDLE_MS = 1000;
+
+	private static final long RESPONSE_QUIET_MS = 3000;
+
+	private static final long RESPONSE_TIMEOUT_MS = 600000;
+
+	private static final long CHECK_INTERVAL_MS = 500;
+
+	private final ProcessResourceTracker tracker;
+
+	private final Executor executor;
+
+	private final IntSupplier limit;
+
+	private final SessionState state;
+
+	/**
+	 * All known sessions, the order is the round robin order
+	 */
+	private final Map<CopilotCliConnector, Session> sessions = new LinkedHashMap<>();
+
+	private int working;
+
+	private boolean checkScheduled;
+
+	/**
+	 * The priority of a queued prompt
+	 */
+	public enum Priority {
+		HIGH, NORMAL, LOW
+	}
+
+	/**
+	 * Sends a prompt to the session it was dispatched to
+	 */
+	@FunctionalInterface
+	public interface PromptTask {
+
+		/**
+		 * Pastes the prompt into the session, the scheduler submits it
+		 * afterwards
+		 *
+		 * @return <code>true</code> if the prompt was pasted,
+		 *         <code>false</code> if the session stays idle
+		 */
+		boolean send(CopilotCliConnector connector) throws IOException;
+
+		/**
+		 * Called once the pasted prompt was submitted and the session starts
+		 * working on it
+		 */
+		default void submitted(CopilotCliConnector connector) {
+			// nothing to do by default
+		}
+	}
+
+	/**
+	 * Observes the state of the sessions, the default reads it from the output
+	 * of the CLI and the keys typed by the user
+	 */
+	interface SessionState {
+
+		/**
+		 * @return a future that completes once the CLI has started up
+		 */
+		CompletableFuture<Void> awaitReady(CopilotCliConnector connector);
+
+		/**
+		 * @return <code>true</code> if the session is not busy with something
+		 *         the user started, does not wait for a confirmation and has no
+		 *         unsubmitted input a prompt would be appended to
+		 */
+		boolean isIdle(CopilotCliConnector connector);
+
+		/**
+		 * Submits the prompt pasted into the session
+		 */
+		void submit(CopilotCliConnector connector) throws IOException;
+
+		/**
+		 * @return a future that completes once the session has answered the
+		 *         submitted prompt
+		 */
+		CompletableFuture<Void> awaitAnswer(CopilotCliConnector connector);
+	}
+
+	/**
+	 * A prompt waiting in the queue of a session
+	 */
+	public final class QueuedPrompt {
+
+		private final Session session;
+		private final String text;
+		private final PromptTask task;
+		private final CompletableFuture<Void> completion = new CompletableFuture<>();
+		private Priority priority;
+
+		QueuedPrompt(Session session, String text, Priority priority, PromptTask task) {
+			this.session = session;
+			this.text = text;
+			this.priority = priority;
+			this.task = task;
+		}
+
+		/**
+		 * @return the prompt text to show to the user
+		 */
+		public String getText() {
+			return text;
+		}
+
+		/**
+		 * @return the current priority of the prompt
+		 */
+		public Priority getPriority() {
+			synchronized (sessions) {
+				return priority;
+			}
+		}
+
+		/**
+		 * @return the session the prompt is queued for
+		 */
+		public CopilotCliConnector getConnector() {
+			return session.connector;
+		}
+
+		/**
+		 * @return a future that completes once the session has answered the
+		 *         prompt and is idle again, it is cancelled if the prompt is
+		 *         removed from the queue or the session ends before
+		 */
+		public CompletableFuture<Void> getCompletion() {
+			return completion;
+		}
+	}
+
+	private final class Session {
+
+		final CopilotCliConnector connector;
+		final List<QueuedPrompt> queue = new ArrayList<>();
+		boolean ready;
+		boolean busy;
+
+		Session(CopilotCliConnector connector) {
+			this.connector = connector;
+		}
+	}
+
+	/**
+	 * @param tracker  the tracker that knows the running sessions
+	 * @param executor the executor to send the prompts on
+	 */
+	public PromptScheduler(ProcessResourceTracker tracker, Executor executor) {
+		this(tracker, executor, PromptScheduler::getWorkingLimit, new ConnectorState(executor));
+	}
+
+	PromptScheduler(ProcessResourceTracker tracker, Executor executor, IntSupplier limit, SessionState state) {
+		this.tracker = tracker;
+		this.executor = executor;
+		this.limit = limit;
+		this.state = state;
+	}
+
+	@Override
+	public void sessionStarted(CopilotCliConnector connector) {
+		synchronized (sessions) {
+			sessions.computeIfAbsent(connector, Session::new);
+		}
+		// the session is ready once the CLI has started up
+		state.awaitReady(connector)
+				.thenRun(() -> {
+					synchronized (sessions) {
+						Session session = sessions.get(connector);
+						if (session != null) {
+							session.ready = true;
+						}
+					}
+					schedule();
+				});
+	}
+
+	@Override
+	public void sessionEnded(CopilotCliConnector connector) {
+		List<QueuedPrompt> dropped;
+		synchronized (sessions) {
+			Session session = sessions.remove(connector);
+			if (session == null) {
+				return;
+			}
+			if (session.busy) {
+				session.busy = false;
+				working--;
+			}
+			dropped = new ArrayList<>(session.queue);
+			session.queue.clear();
+		}
+		dropped.forEach(prompt -> prompt.completion.cancel(false));
+		schedule();
+	}
+
+	/**
+	 * Adds a prompt to the queue of the given session. A session that is not
+	 * started yet is started now.
+	 *
+	 * @param connector the session to send the prompt to
+	 * @param text      the prompt text to show to the user
+	 * @param priority  the priority of the prompt in the queue
+	 * @param task      sends the prompt once it is dispatched
+	 * @return the queued prompt
+	 * @throws IllegalStateException if the session has already ended
+	 */
+	public QueuedPrompt enqueue(CopilotCliConnector connector, String text, Priority priority, PromptTask task) {
+		QueuedPrompt prompt;
+		synchronized (sessions) {
+			// checked under the lock, a session ending meanwhile drops the prompt
+			if (!tracker.getConnectors().contains(connector)) {
+				throw new IllegalStateException("The Copilot session in " + connector.getWorkingDir() + " has ended");
+			}
+			Session session = sessions.computeIfAbsent(connector, Session::new);
+			prompt = new QueuedPrompt(session, text, priority, task);
+			session.queue.add(insertionIndex(session.queue, priority), prompt);
+		}
+		connector.ensureStarted();
+		schedule();
+		return prompt;
+	}
+
+	/**
+	 * @return the prompts waiting for the given session in dispatch order
+	 */
+	public List<QueuedPrompt> getQueue(CopilotCliConnector connector) {
+		synchronized (sessions) {
+			Session session = sessions.get(connector);
+			return session != null ? new ArrayList<>(session.queue) : List.of();
+		}
+	}
+
+	/**
+	 * Moves a waiting prompt to the given position in the queue of its session
+	 *
+	 * @return <code>false</code> if the prompt is not waiting anymore
+	 */
+	public boolean move(QueuedPrompt prompt, int index) {
+		synchronized (sessions) {
+			List<QueuedPrompt> queue = prompt.session.queue;
+			if (!queue.remove(prompt)) {
+				return false;
+			}
+			queue.add(Math.max(0, Math.min(index, queue.size())), prompt);
+		}
+		schedule();
+		return true;
+	}
+
+	/**
+	 * Changes the priority of a waiting prompt, it is queued behind the other
+	 * prompts of the same priority
+	 *
+	 * @return <code>false</code> if the prompt is not waiting anymore
+	 */
+	public boolean setPriority(QueuedPrompt prompt, Priority priority) {
+		synchronized (sessions) {
+			List<QueuedPrompt> queue = prompt.session.queue;
+			if (!queue.remove(prompt)) {
+				return false;
+			}
+			prompt.priority = priority;
+			queue.add(insertionIndex(queue, priority), prompt);
+		}
+		schedule();
+		return true;
+	}
+
+	/**
+	 * Removes a waiting prompt from the queue and cancels its completion
+	 *
+	 * @return <code>false</code> if the prompt is not waiting anymore
+	 */
+	public boolean cancel(QueuedPrompt prompt) {
+		synchronized (sessions) {
+			if (!prompt.session.queue.remove(prompt)) {
+				return false;
+			}
+		}
+		prompt.completion.cancel(false);
+		return true;
+	}
+
+	/**
+	 * Cancels all waiting prompts
+	 */
+	public void dispose() {
+		List<QueuedPrompt> dropped = new ArrayList<>();
+		synchronized (sessions) {
+			for (Session session : sessions.values()) {
+				dropped.addAll(session.queue);
+				session.queue.clear();
+				session.busy = false;
+			}
+			sessions.clear();
+			working = 0;
+		}
+		dropped.forEach(prompt -> prompt.completion.cancel(false));
+	}
+
+	private static int insertionIndex(List<QueuedPrompt> queue, Priority priority) {
+		int index = queue.size();
+		while (index > 0 && queue.get(index - 1).priority.compareTo(priority) > 0) {
+			index--;
+		}
+		return index;
+	}
+
+	private static int getWorkingLimit() {
+		Activator activator = Activator.getDefault();
+		return activator != null ? activator.getPreferenceStore().getInt(PreferenceConstants.MAX_WORKING_SESSIONS)
+				: 0;
+	}
+
+	/**
+	 * Dispatches prompts to idle sessions as long as the global limit allows
+	 */
+	private void schedule() {
+		int max = limit.getAsInt();
+		List<QueuedPrompt> dispatched = new ArrayList<>();
+		synchronized (sessions) {
+			boolean waiting = false;
+			while (working < max) {
+				Session next = null;
+				for (Session session : sessions.values()) {
+					if (session.queue.isEmpty() || !session.ready || session.busy) {
+						continue;
+					}
+					if (!state.isIdle(session.connector)) {
+						// still busy with something the user started, asking for
+						// a confirmation or holding unsubmitted input
+						waiting = true;
+						continue;
+					}
+					if (next == null || session.queue.get(0).priority.compareTo(next.queue.get(0).priority) < 0) {
+						next = session;
+					}
+				}
+				if (next == null) {
+					break;
+				}
+				dispatched.add(next.queue.remove(0));
+				next.busy = true;
+				working++;
+				// round robin, the session goes to the end of the line
+				sessions.remove(next.connector);
+				sessions.put(next.connector, next);
+			}
+			if (waiting && !checkScheduled) {
+				checkScheduled = true;
+				CompletableFuture.delayedExecutor(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS, executor).execute(() -> {
+					synchronized (sessions) {
+						checkScheduled = false;
+					}
+					schedule();
+				});
+			}
+		}
+		for (QueuedPrompt prompt : dispatched) {
+			try {
+				executor.execute(() -> dispatch(prompt));
+			} catch (RejectedExecutionException e) {
+				finished(prompt, e);
+			}
+		}
+	}
+
+	private void dispatch(QueuedPrompt prompt) {
+		CopilotCliConnector connector = prompt.session.connector;
+		try {
+			if (!state.isIdle(connector)) {
+				// the user started something since the prompt was dispatched
+				requeue(prompt);
+				return;
+			}
+			if (!prompt.task.send(connector)) {
+				finished(prompt, null);
+				return;
+			}
+			state.submit(connector);
+			prompt.task.submitted(connector);
+		} catch (IOException | RuntimeException e) {
+			finished(prompt, e);
+			return;
+		}
+		// an answer that never settles frees its slot with the timeout
+		state.awaitAnswer(connector).orTimeout(RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+				.whenComplete((v, error) -> finished(prompt, error));
+	}
+
+	/**
+	 * Puts a dispatched prompt back to the head of its queue and frees its slot
+	 */
+	private void requeue(QueuedPrompt prompt) {
+		boolean queued;
+		synchronized (sessions) {
+			Session session = prompt.session;
+			if (session.busy) {
+				session.busy = false;
+				working--;
+			}
+			queued = sessions.get(session.connector) == session;
+			if (queued) {
+				int index = 0;
+				while (index < session.queue.size()
+						&& session.queue.get(index).priority.compareTo(prompt.priority) < 0) {
+					index++;
+				}
+				session.queue.add(index, prompt);
+			}
+		}
+		if (!queued) {
+			prompt.completion.cancel(false);
+		}
+		schedule();
+	}
+
+	private void finished(QueuedPrompt prompt, Throwable error) {
+		if (error == null) {
+			prompt.completion.complete(null);
+		} else {
+			prompt.completion.completeExceptionally(error);
+		}
+		synchronized (sessions) {
+			Session session = prompt.session;
+			if (session.busy) {
+				session.busy = false;
+				working--;
+			}
+		}
+		schedule();
+	}
+
+	/**
+	 * Reads the state of a session from the output of the CLI and the keys
+	 * typed by the user
+	 */
+	private static final class ConnectorState implements SessionState {
+
+		private final Executor executor;
+
+		ConnectorState(Executor executor) {
+			this.executor = executor;
+		}
+
+		@Override
+		public CompletableFuture<Void> awaitReady(CopilotCliConnector connector) {
+			return connector.awaitQuiet(IDLE_MS, executor).completeOnTimeout(null, CONNECT_TIMEOUT_MS,
+					TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public boolean isIdle(CopilotCliConnector connector) {
+			return connector.isQuiet(IDLE_MS) && !connector.hasPendingInput() && !connector.isConfirming();
+		}
+
+		@Override
+		public void submit(CopilotCliConnector connector) throws IOException {
+			connector.getInputWriter().write("\r");
+		}
+
+		@Override
+		public CompletableFuture<Void> awaitAnswer(CopilotCliConnector connector) {
+			// give the CLI some time to start working before waiting for it to settle
+			return CompletableFuture.runAsync(() -> {
+			}, CompletableFuture.delayedExecutor(RESPONSE_QUIET_MS, TimeUnit.MILLISECONDS, executor))
+					.thenCompose(v -> connector.awaitQuiet(RESPONSE_QUIET_MS, executor));
+		}
+	}
+}
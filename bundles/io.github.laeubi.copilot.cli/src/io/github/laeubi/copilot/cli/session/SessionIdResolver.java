@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker.SessionListener;
+
+/**
+ * Discovers the id of the copilot session behind a connector, so a restored
+ * tab can resume the conversation with <code>--resume</code>.
+ *
+ * The CLI does not print the id, but keeps one entry per session named after
+ * it in its session state directory, which records the directory the session
+ * runs in. A started session is matched with the entries created after its
+ * process was spawned that are not claimed by another session, preferring the
+ * ones that name its working directory. If more than one entry remains the
+ * session is not matched at all, a wrong id would resume the conversation of
+ * another session.
+ *
+ * Sessions are resolved in the background a few times after they were started,
+ * so {@link #getSessionId(CopilotCliConnector)} never reads the file system.
+ */
+public class SessionIdResolver implements SessionListener {
+
+	private static final Pattern SESSION_ID = Pattern
+			.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}", Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * File times have a coarse resolution on some file systems
+	 */
+	private static final long CLOCK_SLACK_MS = 2000;
+
+	/**
+	 * When to look for the entry of a started session, the CLI might only
+	 * create it once the first prompt is sent
+	 */
+	private static final long[] RESOLVE_DELAYS_MS = { 2000, 10000, 60000, 300000 };
+
+	/**
+	 * How much of a session entry is searched for the working directory
+	 */
+	private static final int HEADER_BYTES = 65536;
+
+	private static final String WORKSPACE_FILE = "workspace.yaml";
+
+	private final List<Path> stateDirectories;
+
+	private final Executor executor;
+
+	private final Map<CopilotCliConnector, StartedSession> sessions = new LinkedHashMap<>();
+
+	/**
+	 * Serializes the attempts, without holding the monitor the UI thread asks
+	 * for ids with
+	 */
+	private final Object resolving = new Object();
+
+	private static final class StartedSession {
+
+		final long started;
+		final String workingDir;
+		volatile String id;
+
+		StartedSession(long started, String workingDir, String id) {
+			this.started = started;
+			this.workingDir = workingDir;
+			this.id = id;
+		}
+	}
+
+	private record Entry(long created, Path path) {
+	}
+
+	/**
+	 * Creates a resolver for the default session state directories of the CLI
+	 * in the home directory of the user
+	 *
+	 * @param executor the executor the file system is read with
+	 */
+	public SessionIdResolver(Executor executor) {
+		this(Path.of(System.getProperty("user.home"), ".copilot"), executor);
+	}
+
+	/**
+	 * Creates a resolver for the session state directories in the given CLI
+	 * configuration directory
+	 *
+	 * @param executor the executor the file system is read with
+	 */
+	public SessionIdResolver(Path copilotHome, Executor executor) {
+		stateDirectories = List.of(copilotHome.resolve("session-state"), copilotHome.resolve("history-session-state"));
+		this.executor = executor;
+	}
+
+	@Override
+	public void sessionStarted(CopilotCliConnector connector) {
+		// a resumed session keeps its id
+		StartedSession session = new StartedSession(System.currentTimeMillis(), connector.getWorkingDir(),
+				connector.getResumeId());
+		synchronized (this) {
+			sessions.put(connector, session);
+		}
+		if (session.id == null) {
+			schedule(connector, 0);
+		}
+	}
+
+	@Override
+	public synchronized void sessionEnded(CopilotCliConnector connector) {
+		sessions.remove(connector);
+	}
+
+	/**
+	 * Returns the id of the copilot session of the given connector as far as it
+	 * was resolved, this never reads the file system and can be called on the
+	 * UI thread.
+	 *
+	 * @return the session id or <code>null</code> if it is not known (yet)
+	 */
+	public String getSessionId(CopilotCliConnector connector) {
+		StartedSession session;
+		synchronized (this) {
+			session = sessions.get(connector);
+		}
+		if (session == null) {
+			// not spawned, still the session it was restored from
+			return connector.getResumeId();
+		}
+		return session.id;
+	}
+
+	private void schedule(CopilotCliConnector connector, int attempt) {
+		Executor delayed = CompletableFuture.delayedExecutor(RESOLVE_DELAYS_MS[attempt], TimeUnit.MILLISECONDS,
+				executor);
+		delayed.execute(() -> {
+			StartedSession session;
+			synchronized (this) {
+				session = sessions.get(connector);
+			}
+			if (session == null || session.id != null) {
+				return;
+			}
+			resolve();
+			if (session.id == null && attempt + 1 < RESOLVE_DELAYS_MS.length) {
+				schedule(connector, attempt + 1);
+			}
+		});
+	}
+
+	/**
+	 * Matches the started sessions with the entries of the session state
+	 * directories, a session is only matched if exactly one candidate is left.
+	 * Matching repeats as long as it makes progress, as every match removes a
+	 * candidate of the other sessions.
+	 */
+	void resolve() {
+		synchronized (resolving) {
+			resolveLocked();
+		}
+	}
+
+	private void resolveLocked() {
+		Map<String, Entry> entries = listSessions();
+		List<StartedSession> unresolved = new ArrayList<>();
+		Set<String> claimed = new HashSet<>();
+		synchronized (this) {
+			for (StartedSession session : sessions.values()) {
+				if (session.id != null) {
+					claimed.add(session.id);
+				} else {
+					unresolved.add(session);
+				}
+			}
+		}
+		Map<Path, String> contents = new HashMap<>();
+		boolean progress = true;
+		while (progress && !unresolved.isEmpty()) {
+			progress = false;
+			for (Iterator<StartedSession> iterator = unresolved.iterator(); iterator.hasNext();) {
+				StartedSession session = iterator.next();
+				String match = match(session, entries, claimed, contents);
+				if (match != null) {
+					session.id = match;
+					claimed.add(match);
+					iterator.remove();
+					progress = true;
+				}
+			}
+		}
+	}
+
+	private String match(StartedSession session, Map<String, Entry> entries, Set<String> claimed,
+			Map<Path, String> contents) {
+		List<String> candidates = new ArrayList<>();
+		List<String> inWorkingDir = new ArrayList<>();
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			if (entry.getValue().created() < session.started - CLOCK_SLACK_MS || claimed.contains(entry.getKey())) {
+				continue;
+			}
+			candidates.add(entry.getKey());
+			if (session.workingDir != null && mentions(
+					contents.computeIfAbsent(entry.getValue().path(), SessionIdResolver::readHeader),
+					session.workingDir)) {
+				inWorkingDir.add(entry.getKey());
+			}
+		}
+		if (inWorkingDir.size() == 1) {
+			return inWorkingDir.get(0);
+		}
+		if (inWorkingDir.isEmpty() && candidates.size() == 1) {
+			return candidates.get(0);
+		}
+		// refuse to guess
+		return null;
+	}
+
+	private static boolean mentions(String content, String workingDir) {
+		// JSON escapes the separators of Windows paths
+		return content.contains(workingDir) || content.contains(workingDir.replace("\\", "\\\\"));
+	}
+
+	/**
+	 * Reads the start of the file describing a session, that is the workspace
+	 * file of a session directory or the event log itself
+	 */
+	private static String readHeader(Path entry) {
+		Path file = Files.isDirectory(entry) ? entry.resolve(WORKSPACE_FILE) : entry;
+		try (InputStream stream = Files.newInputStream(file)) {
+			return new String(stream.readNBytes(HEADER_BYTES), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	private Map<String, Entry> listSessions() {
+		Map<String, Entry> entries = new HashMap<>();
+		for (Path directory : stateDirectories) {
+			if (!Files.isDirectory(directory)) {
+				continue;
+			}
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				for (Path path : stream) {
+					Matcher matcher = SESSION_ID.matcher(path.getFileName().toString());
+					if (matcher.find()) {
+						long time = Files.readAttributes(path, BasicFileAttributes.class).creationTime().toMillis();
+						entries.merge(matcher.group().toLowerCase(), new Entry(time, path),
+								(a, b) -> a.created() <= b.created() ? a : b);
+					}
+				}
+			} catch (IOException e) {
+				// the CLI might be writing, the next attempt tries again
+			}
+		}
+		return entries;
+	}
+}
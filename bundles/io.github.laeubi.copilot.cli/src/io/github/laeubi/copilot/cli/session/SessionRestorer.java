@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.ILog;
+import org.eclipse.terminal.view.core.ITerminalsConnectorConstants;
+import org.eclipse.ui.IStartup;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchListener;
+import org.eclipse.ui.PlatformUI;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.launcher.CopilotCliLauncherDelegate;
+import io.github.laeubi.copilot.cli.preferences.PreferenceConstants;
+import io.github.laeubi.copilot.cli.session.SessionSnapshot.Session;
+
+/**
+ * Persists the open Copilot sessions when the workbench shuts down and restores
+ * them on the next start.
+ *
+ * Restored sessions show up as tabs immediately, but the copilot process is
+ * only spawned once a session is used, or, if enabled, one after the other in
+ * the background. Sessions whose copilot session id could be resolved are
+ * resumed with their previous conversation.
+ */
+public class SessionRestorer implements IStartup, IWorkbenchListener {
+
+	private static final String SNAPSHOT_FILE = "sessions.properties";
+
+	private static final long STARTUP_TIMEOUT_MS = 60000;
+
+	private static final long STARTUP_QUIET_MS = 1000;
+
+	@Override
+	public void earlyStartup() {
+		IWorkbench workbench = PlatformUI.getWorkbench();
+		workbench.addWorkbenchListener(this);
+		Activator activator = Activator.getDefault();
+		if (!activator.getPreferenceStore().getBoolean(PreferenceConstants.RESTORE_SESSIONS)) {
+			return;
+		}
+		SessionSnapshot snapshot;
+		try {
+			snapshot = SessionSnapshot.load(getSnapshotFile());
+		} catch (IOException e) {
+			ILog.get().error("Error reading Copilot session snapshot", e);
+			return;
+		}
+		List<Session> sessions = snapshot.getSessions();
+		if (sessions.isEmpty()) {
+			return;
+		}
+		boolean prespawn = activator.getPreferenceStore().getBoolean(PreferenceConstants.RESTORE_PRESPAWN);
+		workbench.getDisplay().asyncExec(() -> restore(sessions, prespawn));
+	}
+
+	@Override
+	public boolean preShutdown(IWorkbench workbench, boolean forced) {
+		// The terminals are disposed before the bundle is stopped, so capture now
+		Activator activator = Activator.getDefault();
+		if (activator != null) {
+			try {
+				SessionSnapshot.capture(activator.getResourceTracker(), activator.getSessionIds()).save(getSnapshotFile());
+			} catch (IOException e) {
+				ILog.get().error("Error writing Copilot session snapshot", e);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void postShutdown(IWorkbench workbench) {
+		// Nothing to do
+	}
+
+	private void restore(List<Session> sessions, boolean prespawn) {
+		for (Session session : sessions) {
+			Map<String, Object> properties = new HashMap<>();
+			properties.put(ITerminalsConnectorConstants.PROP_TERMINAL_CONNECTOR_ID,
+					"io.github.laeubi.copilot.cli.connector");
+			properties.put(ITerminalsConnectorConstants.PROP_DELEGATE_ID, "io.github.laeubi.copilot.cli.launcher");
+			properties.put(ITerminalsConnectorConstants.PROP_PROCESS_WORKING_DIR, session.workingDir());
+			// Keep the working directory as key so the handlers reuse the restored tab
+			properties.put(ITerminalsConnectorConstants.PROP_DATA, session.workingDir());
+			properties.put(ITerminalsConnectorConstants.PROP_FORCE_NEW, Boolean.TRUE);
+			if (session.title() != null) {
+				properties.put(ITerminalsConnectorConstants.PROP_TITLE, session.title());
+			}
+			if (session.arguments() != null) {
+				properties.put(ITerminalsConnectorConstants.PROP_PROCESS_ARGS, session.arguments());
+			}
+			if (session.resumeId() != null) {
+				properties.put(CopilotCliLauncherDelegate.PROP_RESUME_ID, session.resumeId());
+			}
+			properties.put(CopilotCliLauncherDelegate.PROP_DEFERRED, Boolean.TRUE);
+			new CopilotCliLauncherDelegate().execute(properties).whenComplete((result, error) -> {
+				if (error != null) {
+					ILog.get().error("Error restoring Copilot terminal for " + session.workingDir(), error);
+				}
+			});
+		}
+		if (prespawn) {
+			prespawn(sessions);
+		}
+	}
+
+	/**
+	 * Spawns the restored sessions one after the other in tab order, so the
+	 * first tab is ready first and cold starts do not compete with each other.
+	 */
+	private void prespawn(List<Session> sessions) {
+		Activator activator = Activator.getDefault();
+		Executor io = activator.getExecutor().io();
+		CompletableFuture<?> previous = CompletableFuture.completedFuture(null);
+		for (Session session : sessions) {
+			previous = previous.handle((result, error) -> null)
+					.thenCompose(v -> activator.getResourceTracker().awaitConnector(session.workingDir(),
+							STARTUP_TIMEOUT_MS))
+					.thenComposeAsync(connector -> connector.awaitQuiet(STARTUP_QUIET_MS, io)
+							.completeOnTimeout(null, STARTUP_TIMEOUT_MS, TimeUnit.MILLISECONDS), io);
+		}
+		previous.whenComplete((result, error) -> {
+			if (error != null) {
+				ILog.get().warn("Not all restored Copilot sessions could be started", error);
+			}
+		});
+	}
+
+	private static Path getSnapshotFile() {
+		return Activator.getDefault().getStateLocation().append(SNAPSHOT_FILE).toFile().toPath();
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker;
+
+/**
+ * A compact snapshot of the open Copilot sessions, in the order they were
+ * connected, which is the tab order unless tabs were moved.
+ */
+public class SessionSnapshot {
+
+	private static final String COUNT = "sessions";
+	private static final String WORKING_DIR = ".workingDir";
+	private static final String TITLE = ".title";
+	private static final String ARGUMENTS = ".arguments";
+	private static final String RESUME_ID = ".resumeId";
+
+	/**
+	 * A single session of the snapshot
+	 */
+	public record Session(String workingDir, String title, String arguments, String resumeId) {
+	}
+
+	private final List<Session> sessions;
+
+	public SessionSnapshot(List<Session> sessions) {
+		this.sessions = List.copyOf(sessions);
+	}
+
+	/**
+	 * @return the sessions in the order they were connected
+	 */
+	public List<Session> getSessions() {
+		return sessions;
+	}
+
+	/**
+	 * Captures all sessions currently known to the tracker, with the id of the
+	 * copilot session to resume if it could be resolved.
+	 */
+	public static SessionSnapshot capture(ProcessResourceTracker tracker, SessionIdResolver sessionIds) {
+		List<Session> sessions = new ArrayList<>();
+		for (CopilotCliConnector connector : tracker.getConnectors()) {
+			String workingDir = connector.getWorkingDir();
+			if (workingDir != null) {
+				sessions.add(new Session(workingDir, connector.getTitle(), connector.getArguments(),
+						sessionIds.getSessionId(connector)));
+			}
+		}
+		return new SessionSnapshot(sessions);
+	}
+
+	/**
+	 * Writes the snapshot to the given file.
+	 */
+	public void save(Path file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(COUNT, Integer.toString(sessions.size()));
+		for (int i = 0; i < sessions.size(); i++) {
+			Session session = sessions.get(i);
+			String prefix = Integer.toString(i);
+			put(properties, prefix + WORKING_DIR, session.workingDir());
+			put(properties, prefix + TITLE, session.title());
+			put(properties, prefix + ARGUMENTS, session.arguments());
+			put(properties, prefix + RESUME_ID, session.resumeId());
+		}
+		Files.createDirectories(file.getParent());
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			properties.store(writer, "Copilot CLI sessions");
+		}
+	}
+
+	/**
+	 * Reads a snapshot from the given file, an empty snapshot is returned if
+	 * the file does not exist.
+	 */
+	public static SessionSnapshot load(Path file) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return new SessionSnapshot(List.of());
+		}
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		List<Session> sessions = new ArrayList<>();
+		int count;
+		try {
+			count = Integer.parseInt(properties.getProperty(COUNT, "0"));
+		} catch (NumberFormatException e) {
+			count = 0;
+		}
+		for (int i = 0; i < count; i++) {
+			String prefix = Integer.toString(i);
+			String workingDir = properties.getProperty(prefix + WORKING_DIR);
+			if (workingDir != null) {
+				sessions.add(new Session(workingDir, properties.getProperty(prefix + TITLE),
+						properties.getProperty(prefix + ARGUMENTS), properties.getProperty(prefix + RESUME_ID)));
+			}
+		}
+		return new SessionSnapshot(sessions);
+	}
+
+	private static void put(Properties properties, String key, String value) {
+		if (value != null) {
+			properties.setProperty(key, value);
+		}
+	}
+}
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2025 Christoph Läubrich and others.
+ * This program and the accompanying materials are made available under the terms
+ * of the Eclipse Public License 2.0 which accompanies this distribution, and is
+ * available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Christoph Läubrich - initial API and implementation
+ *******************************************************************************/
+package io.github.laeubi.copilot.cli.session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+import org.eclipse.core.runtime.ILog;
+
+import io.github.laeubi.copilot.cli.Activator;
+import io.github.laeubi.copilot.cli.connector.CopilotCliConnector;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker;
+import io.github.laeubi.copilot.cli.connector.ProcessResourceTracker.SessionListener;
+import io.github.laeubi.copilot.cli.preferences.PreferenceConstants;
+
+/**
+ * Manages the Git worktrees used to run several Copilot sessions on the same
+ * repository in parallel.
+ *
+ * Each repository gets numbered worktree slots below the plug-in state
+ * location, all sharing the object store of the repository. A slot is checked
+ * out detached at the current <code>HEAD</code> of the repository, which is
+ * recorded as its base. When its session ends, a clean slot is kept to be
+ * recycled by the next parallel session, which only needs a checkout instead
+ * of a new worktree. Only {@value #IDLE_SLOTS} clean slot is kept idle per
+ * repository, further ones are removed. A slot with uncommitted changes or with
+ * commits on top of its base is never touched, so the work of the agent is not
+ * lost, but it still counts against the maximum until it is cleaned up.
+ *
+ * The worktrees are not part of the workspace, which would duplicate every
+ * file of the repository in searches and builds. A session simply runs in the
+ * worktree directory.
+ */
+public class WorktreeManager implements SessionListener {
+
+	/**
+	 * The number of clean slots kept for the next session when a session ends
+	 */
+	static final int IDLE_SLOTS = 1;
+
+	private static final long GIT_TIMEOUT_SECONDS = 120;
+
+	/**
+	 * How long a slot is held for a session that did not connect yet
+	 */
+	private static final long RESERVATION_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+
+	private static final String BASE_SUFFIX = ".base";
+
+	private final Path directory;
+
+	private final ProcessResourceTracker tracker;
+
+	private final Executor executor;
+
+	private final IntSupplier maxSessions;
+
+	/**
+	 * Slots acquired for a session that did not connect yet, with the time they
+	 * were reserved
+	 */
+	private final Map<Path, Long> reserved = new HashMap<>();
+
+	/**
+	 * @param directory the directory to create the worktrees in
+	 * @param tracker   the tracker of the sessions using the worktrees
+	 * @param executor  the executor to run git on
+	 */
+	public WorktreeManager(Path directory, ProcessResourceTracker tracker, Executor executor) {
+		this(directory, tracker, executor, WorktreeManager::getMaxSessions);
+	}
+
+	WorktreeManager(Path directory, ProcessResourceTracker tracker, Executor executor, IntSupplier maxSessions) {
+		this.directory = directory;
+		this.tracker = tracker;
+		this.executor = executor;
+		this.maxSessions = maxSessions;
+	}
+
+	private static int getMaxSessions() {
+		Activator activator = Activator.getDefault();
+		return activator == null ? 0 : activator.getPreferenceStore().getInt(PreferenceConstants.MAX_PARALLEL_SESSIONS);
+	}
+
+	/**
+	 * Reserves a worktree of the given repository for a new session, creating
+	 * or recycling one. The future fails if the maximum number of parallel
+	 * sessions for the repository is reached.
+	 */
+	public CompletableFuture<Path> acquire(Path gitRoot) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return doAcquire(gitRoot.toAbsolutePath().normalize());
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	private Path doAcquire(Path root) throws IOException {
+		Path slots = directory.resolve(hash(root.toString()));
+		int max = maxSessions.getAsInt();
+		String head = git(root, "rev-parse", "HEAD").trim();
+		List<Path> kept = new ArrayList<>();
+		for (Path slot : listSlots(slots)) {
+			if (!reserve(slot)) {
+				continue;
+			}
+			try {
+				if (isClean(slot)) {
+					git(slot, "checkout", "--detach", head);
+					Files.writeString(baseFile(slot), head);
+					return slot;
+				}
+			} catch (IOException | RuntimeException e) {
+				release(slot);
+				throw e;
+			}
+			// keep the changes and commits of an earlier session
+			release(slot);
+			kept.add(slot);
+		}
+		Path slot;
+		synchronized (reserved) {
+			List<Path> existing = listSlots(slots);
+			if (existing.size() >= max) {
+				StringBuilder message = new StringBuilder(
+						"At most " + max + " parallel Copilot sessions are allowed for " + root + ".");
+				if (!kept.isEmpty()) {
+					message.append(" These worktrees keep changes of earlier sessions, merge or discard them and "
+							+ "remove the worktree to free its slot:");
+					kept.forEach(path -> message.append("\n").append(path));
+				}
+				throw new IOException(message.toString());
+			}
+			int index = 1;
+			while (existing.contains(slot = slots.resolve(root.getFileName() + "-" + index))
+					|| reserved.containsKey(slot)) {
+				index++;
+			}
+			reserved.put(slot, System.currentTimeMillis());
+		}
+		try {
+			Files.createDirectories(slots);
+			// drop registrations of worktrees deleted from the disk
+			git(root, "worktree", "prune");
+			git(root, "worktree", "add", "--detach", slot.toString(), head);
+			Files.writeString(baseFile(slot), head);
+			return slot;
+		} catch (IOException | RuntimeException e) {
+			release(slot);
+			throw e;
+		}
+	}
+
+	@Override
+	public void sessionStarted(CopilotCliConnector connector) {
+		Path slot = toSlot(connector);
+		if (slot != null) {
+			// the tracker knows about the session now
+			release(slot);
+		}
+	}
+
+	@Override
+	public void sessionEnded(CopilotCliConnector connector) {
+		Path slot = toSlot(connector);
+		if (slot == null || isInUse(slot)) {
+			return;
+		}
+		executor.execute(() -> recycle(slot));
+	}
+
+	/**
+	 * Reserves the slot if no session uses it
+	 */
+	private boolean reserve(Path slot) {
+		synchronized (reserved) {
+			if (isInUse(slot)) {
+				return false;
+			}
+			reserved.put(slot, System.currentTimeMillis());
+			return true;
+		}
+	}
+
+	private void release(Path slot) {
+		synchronized (reserved) {
+			reserved.remove(slot);
+		}
+	}
+
+	/**
+	 * A slot is in use if a session, even a restored one that was not started
+	 * yet, runs in it or it was acquired recently for a session that did not
+	 * connect yet
+	 */
+	private boolean isInUse(Path slot) {
+		synchronized (reserved) {
+			Long time = reserved.get(slot);
+			if (time != null) {
+				if (System.currentTimeMillis() - time < RESERVATION_TIMEOUT_MS) {
+					return true;
+				}
+				// the session never connected
+				reserved.remove(slot);
+			}
+		}
+		for (CopilotCliConnector connector : tracker.getConnectors()) {
+			if (slot.equals(toSlot(connector))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Keeps a clean worktree for the next session or removes it if there are
+	 * enough idle ones already
+	 */
+	private void recycle(Path slot) {
+		try {
+			if (!isClean(slot)) {
+				ILog.get().info("Copilot worktree " + slot + " has changes or commits not merged yet and is kept");
+				return;
+			}
+			if (countCleanIdleSlots(slot.getParent(), slot) >= IDLE_SLOTS) {
+				if (!reserve(slot)) {
+					// recycled meanwhile
+					return;
+				}
+				try {
+					// a worktree can't remove itself, so run git on the repository
+					String gitDir = git(slot, "rev-parse", "--path-format=absolute", "--git-common-dir").trim();
+					git(slot.getParent(), "--git-dir=" + gitDir, "worktree", "remove", slot.toString());
+					Files.deleteIfExists(baseFile(slot));
+				} finally {
+					release(slot);
+				}
+			}
+		} catch (IOException e) {
+			ILog.get().warn("Can't clean up Copilot worktree " + slot, e);
+		}
+	}
+
+	/**
+	 * Counts the clean slots no session uses, except the given one
+	 */
+	private long countCleanIdleSlots(Path slots, Path except) throws IOException {
+		long count = 0;
+		for (Path candidate : listSlots(slots)) {
+			if (!candidate.equals(except) && !isInUse(candidate) && isClean(candidate)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static List<Path> listSlots(Path slots) throws IOException {
+		if (!Files.isDirectory(slots)) {
+			return List.of();
+		}
+		try (Stream<Path> stream = Files.list(slots)) {
+			return stream.filter(Files::isDirectory).sorted().toList();
+		}
+	}
+
+	private Path toSlot(CopilotCliConnector connector) {
+		String workingDir = connector.getWorkingDir();
+		if (workingDir == null) {
+			return null;
+		}
+		try {
+			Path path = Path.of(workingDir).toAbsolutePath().normalize();
+			return path.startsWith(directory) ? path : null;
+		} catch (InvalidPathException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A worktree is clean if it has no uncommitted changes and is still at the
+	 * commit it was checked out at, so nothing would be lost by a checkout.
+	 */
+	private static boolean isClean(Path worktree) throws IOException {
+		Path baseFile = baseFile(worktree);
+		if (!Files.isRegularFile(baseFile)) {
+			// not known where it started, so it might have commits of its own
+			return false;
+		}
+		String base = Files.readString(baseFile).trim();
+		return git(worktree, "rev-parse", "HEAD").trim().equals(base)
+				&& git(worktree, "status", "--porcelain").isBlank();
+	}
+
+	/**
+	 * The base commit is recorded next to the worktree, inside it would show up
+	 * as an untracked file
+	 */
+	private static Path baseFile(Path worktree) {
+		return worktree.resolveSibling(worktree.getFileName() + BASE_SUFFIX);
+	}
+
+	/**
+	 * Runs git in the given directory and returns its output
+	 */
+	private static String git(Path workingDir, String... args) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add("git");
+		command.addAll(List.of(args));
+		Process process = new ProcessBuilder(command).directory(workingDir.toFile()).redirectErrorStream(true)
+				.start();
+		String output;
+		try (InputStream stream = process.getInputStream()) {
+			output = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		try {
+			if (!process.waitFor(GIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+				throw new IOException("git " + String.join(" ", args) + " timed out in " + workingDir);
+			}
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while running git in " + workingDir, e);
+		}
+		if (process.exitValue() != 0) {
+			throw new IOException("git " + String.join(" ", args) + " failed in " + workingDir + ": " + output.strip());
+		}
+		return output;
+	}
+
+	private static String hash(String text) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(hash, 0, 8);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java runtime has to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}